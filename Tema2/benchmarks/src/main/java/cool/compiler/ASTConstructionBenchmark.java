@@ -0,0 +1,51 @@
+package cool.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import cool.lexer.CoolLexer;
+import cool.parser.CoolParser;
+import cool.structures.SourceFiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Builds the AST of every file of the input from parse trees built
+// beforehand.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ASTConstructionBenchmark {
+    @Param({"tests", "synthetic"})
+    public String input;
+
+    private final List<CoolParser.ProgramContext> trees = new ArrayList<>();
+    private final List<Integer> fileIds = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException {
+        var files = new SourceFiles();
+        for (var file : BenchmarkInputs.files(BenchmarkInputs.programs(input))) {
+            var lexer = new CoolLexer(CharStreams.fromString(file.text, file.fileName));
+            trees.add(new CoolParser(new CommonTokenStream(lexer)).program());
+            fileIds.add(files.add(file.fileName));
+        }
+    }
+
+    @Benchmark
+    public int build() {
+        int classes = 0;
+        for (int i = 0; i < trees.size(); i++) {
+            var ast = (Program) new ASTConstructionVisitor(fileIds.get(i)).visit(trees.get(i));
+            classes += ast.classes.size();
+        }
+
+        return classes;
+    }
+}
@@ -0,0 +1,80 @@
+package cool.compiler;
+
+import cool.tester.ProgramGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Programs the benchmarks run on, selected by name: "tests" for every program
+// in tests/tema2, each compiled along with main.cl as Tester2 does,
+// "synthetic" for one large generated program, or "ill-typed" for one with
+// semantic errors.
+class BenchmarkInputs {
+    static final String TEST_DIR_NAME = "tests/tema2";
+
+    // A source file, read ahead so that the benchmarks do not measure I/O.
+    static class SourceFile {
+        final String fileName;
+        final String text;
+
+        SourceFile(String fileName, String text) {
+            this.fileName = fileName;
+            this.text = text;
+        }
+    }
+
+    // Each program is the list of its files.
+    static List<List<SourceFile>> programs(String input) throws IOException {
+        return switch (input) {
+            case "tests" -> testPrograms();
+            case "synthetic" -> generated("synthetic.cl", 0);
+            case "ill-typed" -> generated("ill-typed.cl", 0.05);
+            default -> throw new IllegalArgumentException("Unknown input " + input);
+        };
+    }
+
+    // All files of the given programs, once each.
+    static List<SourceFile> files(List<List<SourceFile>> programs) {
+        var files = new ArrayList<SourceFile>();
+        for (var program : programs)
+            for (var file : program)
+                if (!files.contains(file))
+                    files.add(file);
+
+        return files;
+    }
+
+    private static List<List<SourceFile>> testPrograms() throws IOException {
+        var testDir = new File(TEST_DIR_NAME);
+        var tests = testDir.listFiles((dir, name) -> name.endsWith(".cl") && !name.endsWith("main.cl"));
+        if (tests == null)
+            throw new IOException("No tests in " + testDir.getAbsolutePath());
+        Arrays.sort(tests);
+
+        var main = read(new File(testDir, "main.cl"));
+        var programs = new ArrayList<List<SourceFile>>();
+        for (var test : tests)
+            programs.add(List.of(read(test), main));
+
+        return programs;
+    }
+
+    private static SourceFile read(File file) throws IOException {
+        return new SourceFile(file.getPath(), Files.readString(file.toPath()));
+    }
+
+    // A large program from the generator, with 500 classes, of which the
+    // given fraction of methods and attributes have an error. The seed is
+    // fixed, so that every run measures the same program.
+    private static List<List<SourceFile>> generated(String fileName, double errors) {
+        var generator = new ProgramGenerator();
+        generator.classes = 500;
+        generator.errors = errors;
+
+        return List.of(List.of(new SourceFile(fileName, generator.generate())));
+    }
+}
@@ -0,0 +1,46 @@
+package cool.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+
+import cool.lexer.CoolLexer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lexes every file of the input into tokens, reusing one lexer as the
+// compiler does.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"tests", "synthetic"})
+    public String input;
+
+    private List<BenchmarkInputs.SourceFile> files;
+    private CoolLexer lexer;
+
+    @Setup
+    public void setup() throws IOException {
+        files = BenchmarkInputs.files(BenchmarkInputs.programs(input));
+        lexer = new CoolLexer(CharStreams.fromString(""));
+    }
+
+    // Returns the number of tokens, so that lexing is not optimized away.
+    @Benchmark
+    public int lex() {
+        int tokens = 0;
+        for (var file : files) {
+            lexer.setInputStream(CharStreams.fromString(file.text, file.fileName));
+            while (lexer.nextToken().getType() != Token.EOF)
+                tokens++;
+        }
+
+        return tokens;
+    }
+}
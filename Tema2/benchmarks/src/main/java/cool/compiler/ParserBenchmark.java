@@ -0,0 +1,58 @@
+package cool.compiler;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.openjdk.jmh.annotations.*;
+
+import cool.lexer.CoolLexer;
+import cool.parser.CoolParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parses every file of the input from tokens lexed beforehand, with the SLL
+// prediction the compiler tries first. The inputs have no syntax errors, so
+// the LL fallback never runs.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"tests", "synthetic"})
+    public String input;
+
+    private final List<CommonTokenStream> tokenStreams = new ArrayList<>();
+    private CoolParser parser;
+
+    @Setup
+    public void setup() throws IOException {
+        for (var file : BenchmarkInputs.files(BenchmarkInputs.programs(input))) {
+            var tokenStream = new CommonTokenStream(new CoolLexer(CharStreams.fromString(file.text, file.fileName)));
+            tokenStream.fill();
+            tokenStreams.add(tokenStream);
+        }
+
+        parser = new CoolParser(null);
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.removeErrorListeners();
+    }
+
+    @Benchmark
+    public int parse() {
+        int classes = 0;
+        for (var tokenStream : tokenStreams) {
+            tokenStream.seek(0);
+            parser.setTokenStream(tokenStream);
+            classes += parser.program().classes.size();
+        }
+
+        return classes;
+    }
+}
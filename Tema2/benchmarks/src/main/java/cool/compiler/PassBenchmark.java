@@ -0,0 +1,128 @@
+package cool.compiler;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.openjdk.jmh.annotations.*;
+
+import cool.structures.CompilationContext;
+import cool.structures.DiagnosticRenderer;
+import cool.structures.Diagnostics;
+import cool.structures.ErrorLimits;
+import cool.structures.SourceFiles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs one semantic pass, in a traversal of its own as in legacy mode, on
+// every program of the input. Programs with errors are measured as well, as
+// the passes keep going after reporting them; error messages are buffered but
+// never printed.
+//
+// A run needs ASTs with their annotations cleared and the passes before the
+// measured one run again, so runs are measured in batches. Before each
+// iteration, outside the measurement, a copy of the programs is prepared for
+// every run of the batch, and each run then takes a copy of its own. Scores
+// are the time of a whole batch.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, batchSize = PassBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = PassBenchmark.BATCH)
+@Fork(1)
+public class PassBenchmark {
+    static final int BATCH = 20;
+
+    @Param({"tests", "synthetic", "ill-typed"})
+    public String input;
+
+    // One of the PassManager.Pass names.
+    @Param({"DEFINITION", "CONNECTION", "VERIFICATION", "TYPE"})
+    public String pass;
+
+    private PassManager.Pass measured;
+
+    // The programs of each copy, and the contexts they are prepared in.
+    private final List<List<Program>> copies = new ArrayList<>();
+    private final List<List<CompilationContext>> contexts = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void parse() throws IOException {
+        measured = PassManager.Pass.valueOf(pass);
+
+        var fileParser = new FileParser();
+        var inputs = BenchmarkInputs.programs(input);
+        for (int copy = 0; copy < BATCH; copy++) {
+            var programs = new ArrayList<Program>();
+            for (var program : inputs) {
+                var classes = new ArrayList<Class>();
+                var files = new SourceFiles();
+                for (var file : program) {
+                    var parsedFile = fileParser.parse(file.fileName, files.add(file.fileName),
+                            CharStreams.fromString(file.text, file.fileName));
+                    if (parsedFile.hasErrors())
+                        throw new IllegalStateException("Syntax errors in " + file.fileName);
+                    classes.addAll(parsedFile.ast.classes);
+                }
+
+                programs.add(new Program(0, classes));
+            }
+
+            copies.add(programs);
+        }
+    }
+
+    // Each run needs fresh symbols, as passes add them to the global scope.
+    @Setup(Level.Iteration)
+    public void prepare() {
+        contexts.clear();
+        next = 0;
+
+        for (var programs : copies) {
+            var copyContexts = new ArrayList<CompilationContext>();
+            for (var program : programs)
+                copyContexts.add(prepare(program));
+
+            contexts.add(copyContexts);
+        }
+    }
+
+    private CompilationContext prepare(Program program) {
+        program.accept(new AnnotationResetVisitor());
+
+        var context = new CompilationContext(new Diagnostics(DiagnosticRenderer.TEXT, message -> { }),
+                ErrorLimits.NONE);
+        for (var pass : PassManager.Pass.values()) {
+            if (pass == measured)
+                break;
+
+            program.accept(visitorFor(pass, context));
+            if (pass == PassManager.Pass.CONNECTION) {
+                context.analyzeClassGraph();
+                context.freezeHierarchy();
+            }
+        }
+
+        return context;
+    }
+
+    @Benchmark
+    public void run() {
+        var programs = copies.get(next);
+        var programContexts = contexts.get(next);
+        next++;
+
+        for (int i = 0; i < programs.size(); i++)
+            programs.get(i).accept(visitorFor(measured, programContexts.get(i)));
+    }
+
+    private static ASTVisitor<?> visitorFor(PassManager.Pass pass, CompilationContext context) {
+        return switch (pass) {
+            case DEFINITION -> new DefinitionPassVisitor(context);
+            case CONNECTION -> new ConnectionPassVisitor(context);
+            case VERIFICATION -> new VerificationPassVisitor(context);
+            case TYPE -> new TypePassVisitor(context);
+        };
+    }
+}
@@ -1,566 +1,570 @@
-package cool.compiler;
-
-import cool.structures.ClassSymbol;
-import cool.structures.FunctionSymbol;
-import cool.structures.IdSymbol;
-import cool.structures.LetOrCaseSymbol;
-import org.antlr.v4.runtime.ParserRuleContext;
-import org.antlr.v4.runtime.Token;
-
-import java.util.List;
-
-public abstract class ASTNode {
-    Token start;
-    ParserRuleContext ctx;
-
-    ASTNode(ParserRuleContext ctx, Token start) {
-        this.ctx = ctx;
-        this.start = start;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return null;
-    }
-}
-
-class Program extends ASTNode {
-    List<Class> classes;
-    Program(ParserRuleContext ctx, Token start, List<Class> classes) {
-        super(ctx, start);
-        this.classes = classes;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Class extends ASTNode {
-    Token classId;
-    Token parentClassId;
-    List<Feature> features;
-
-    ClassSymbol symbol;
-
-    Class(ParserRuleContext ctx, Token start, Token classId, Token parentClassId, List<Feature> features) {
-        super(ctx, start);
-        this.classId = classId;
-        this.parentClassId = parentClassId;
-        this.features = features;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public ClassSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(ClassSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-abstract class Feature extends ASTNode {
-    Feature(ParserRuleContext ctx, Token start) {
-        super(ctx, start);
-    }
-}
-
-class FuncFeature extends Feature {
-    List<Formal> formals;
-    Token funcId;
-    Token funcType;
-    Expression e;
-
-    FunctionSymbol symbol;
-    String parentClass;
-
-    FuncFeature(ParserRuleContext ctx, Token start, List<Formal> formals, Token funcId, Token funcType, Expression e) {
-        super(ctx, start);
-        this.formals = formals;
-        this.funcId = funcId;
-        this.funcType = funcType;
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public FunctionSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(FunctionSymbol symbol) {
-        this.symbol = symbol;
-    }
-
-    public String getParentClass() {
-        return parentClass;
-    }
-
-    public void setParentClass(String parentClass) {
-        this.parentClass = parentClass;
-    }
-}
-
-class VarFeature extends Feature {
-    Token varId;
-    Token varType;
-    Expression e;
-
-    IdSymbol symbol;
-    String parentClass;
-
-    VarFeature(ParserRuleContext ctx, Token start, Token varId, Token varType, Expression e) {
-        super(ctx, start);
-        this.varId = varId;
-        this.varType = varType;
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public IdSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(IdSymbol symbol) {
-        this.symbol = symbol;
-    }
-
-    public String getParentClass() {
-        return parentClass;
-    }
-
-    public void setParentClass(String parentClass) {
-        this.parentClass = parentClass;
-    }
-}
-
-class Formal extends ASTNode {
-    Token formalId;
-    Token formalType;
-
-    IdSymbol symbol;
-    String parentClass;
-    String parentMethod;
-
-    Formal(ParserRuleContext ctx, Token start, Token formalId, Token formalType) {
-        super(ctx, start);
-        this.formalId = formalId;
-        this.formalType = formalType;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public IdSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(IdSymbol symbol) {
-        this.symbol = symbol;
-    }
-
-    public String getParentClass() {
-        return parentClass;
-    }
-
-    public void setParentClass(String parentClass) {
-        this.parentClass = parentClass;
-    }
-
-    public String getParentMethod() {
-        return parentMethod;
-    }
-
-    public void setParentMethod(String parentMethod) {
-        this.parentMethod = parentMethod;
-    }
-}
-
-abstract class Expression extends ASTNode {
-    Expression(ParserRuleContext ctx, Token start) {
-        super(ctx, start);
-    }
-}
-
-class ExplicitDispatch extends Expression {
-    Expression obj;
-    Token parentType;
-    ImplicitDispatch dispatch;
-
-    ClassSymbol parentSymbol;
-
-    ExplicitDispatch(ParserRuleContext ctx, Token start, Expression obj, Token parentType, ImplicitDispatch dispatch) {
-        super(ctx, start);
-        this.obj = obj;
-        this.parentType = parentType;
-        this.dispatch = dispatch;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public ClassSymbol getParentSymbol() {
-        return parentSymbol;
-    }
-
-    public void setParentSymbol(ClassSymbol parentSymbol) {
-        this.parentSymbol = parentSymbol;
-    }
-}
-
-class ImplicitDispatch extends Expression {
-    Token funcId;
-    List<Expression> funcParams;
-    boolean fromExplicit;
-
-    FunctionSymbol symbol;
-
-    ImplicitDispatch(ParserRuleContext ctx, Token start, Token funcId, List<Expression> funcParams, boolean fromExplicit) {
-        super(ctx, start);
-        this.funcId = funcId;
-        this.funcParams = funcParams;
-        this.fromExplicit = fromExplicit;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public FunctionSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(FunctionSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-class If extends Expression {
-    Expression cond;
-    Expression thenBranch;
-    Expression elseBranch;
-    If(ParserRuleContext ctx, Token start, Expression cond, Expression thenBranch, Expression elseBranch) {
-        super(ctx, start);
-        this.cond = cond;
-        this.thenBranch = thenBranch;
-        this.elseBranch = elseBranch;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class While extends Expression {
-    Expression cond;
-    Expression content;
-    While(ParserRuleContext ctx, Token start, Expression cond, Expression content) {
-        super(ctx, start);
-        this.cond = cond;
-        this.content = content;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Block extends Expression {
-    List<Expression> exprs;
-    Block(ParserRuleContext ctx, Token start, List<Expression> exprs) {
-        super(ctx, start);
-        this.exprs = exprs;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Local extends ASTNode {
-    Token varId;
-    Token varType;
-    Expression varExpr;
-
-    LetOrCaseSymbol symbol;
-
-    Local(ParserRuleContext ctx, Token start, Token varId, Token varType, Expression varExpr) {
-        super(ctx, start);
-        this.varId = varId;
-        this.varType = varType;
-        this.varExpr = varExpr;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public LetOrCaseSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(LetOrCaseSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-class Let extends Expression {
-    List<Local> localList;
-    Expression letContent;
-    Let(ParserRuleContext ctx, Token start, List<Local> localList, Expression letContent) {
-        super(ctx, start);
-        this.localList = localList;
-        this.letContent = letContent;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class CaseBranch extends ASTNode {
-    Token varId;
-    Token varType;
-    Expression branchExpr;
-
-    LetOrCaseSymbol symbol;
-
-    CaseBranch(ParserRuleContext ctx, Token start, Token varId, Token varType, Expression branchExpr) {
-        super(ctx, start);
-        this.varId = varId;
-        this.varType = varType;
-        this.branchExpr = branchExpr;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public LetOrCaseSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(LetOrCaseSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-class Case extends Expression {
-    Expression caseExpr;
-    List<CaseBranch> caseBranches;
-    Case(ParserRuleContext ctx, Token start, Expression caseExpr, List<CaseBranch> caseBranches) {
-        super(ctx, start);
-        this.caseExpr = caseExpr;
-        this.caseBranches = caseBranches;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class New extends Expression {
-    Token initType;
-
-    ClassSymbol symbol;
-    New(ParserRuleContext ctx, Token start, Token initType) {
-        super(ctx, start);
-        this.initType = initType;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public ClassSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(ClassSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-class Compl extends Expression {
-    Expression e;
-    Compl(ParserRuleContext ctx, Token start, Expression e) {
-        super(ctx, start);
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Isvoid extends Expression {
-    Expression e;
-    Isvoid(ParserRuleContext ctx, Token start, Expression e) {
-        super(ctx, start);
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class MultDiv extends Expression {
-    Expression left;
-    Expression right;
-    Token op;
-    MultDiv(ParserRuleContext ctx, Token start, Expression left, Expression right, Token op) {
-        super(ctx, start);
-        this.left = left;
-        this.right = right;
-        this.op = op;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class PlusMinus extends Expression {
-    Expression left;
-    Expression right;
-    Token op;
-    PlusMinus(ParserRuleContext ctx, Token start, Expression left, Expression right, Token op) {
-        super(ctx, start);
-        this.left = left;
-        this.right = right;
-        this.op = op;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Relational extends Expression {
-    Expression left;
-    Expression right;
-    Token op;
-    Relational(ParserRuleContext ctx, Token start, Expression left, Expression right, Token op) {
-        super(ctx, start);
-        this.left = left;
-        this.right = right;
-        this.op = op;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Not extends Expression {
-    Expression e;
-    Not(ParserRuleContext ctx, Token start, Expression e) {
-        super(ctx, start);
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Assign extends Expression {
-    Token varId;
-    Expression e;
-
-    IdSymbol symbol;
-    Assign(ParserRuleContext ctx, Token start, Token varId, Expression e) {
-        super(ctx, start);
-        this.varId = varId;
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public IdSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(IdSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-class Paren extends Expression {
-    Expression e;
-    Paren(ParserRuleContext ctx, Token start, Expression e) {
-        super(ctx, start);
-        this.e = e;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class Id extends Expression {
-    Token varId;
-
-    IdSymbol symbol;
-
-    Id(ParserRuleContext ctx, Token start, Token varId) {
-        super(ctx, start);
-        this.varId = varId;
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-
-    public IdSymbol getSymbol() {
-        return symbol;
-    }
-
-    public void setSymbol(IdSymbol symbol) {
-        this.symbol = symbol;
-    }
-}
-
-class IntegerExpr extends Expression {
-    IntegerExpr(ParserRuleContext ctx, Token start) {
-        super(ctx, start);
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-
-class StringExpr extends Expression {
-    StringExpr(ParserRuleContext ctx, Token start) {
-        super(ctx, start);
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
-
-class BoolExpr extends Expression {
-    BoolExpr(ParserRuleContext ctx, Token start) {
-        super(ctx, start);
-    }
-
-    public <T> T accept(ASTVisitor<T> visitor) {
-        return visitor.visit(this);
-    }
-}
+package cool.compiler;
+
+import cool.structures.ClassSymbol;
+import cool.structures.FunctionSymbol;
+import cool.structures.IdSymbol;
+import cool.structures.LetOrCaseSymbol;
+import cool.structures.SourceToken;
+
+import java.util.List;
+
+// Nodes keep source positions and token texts only, not parse tree nodes,
+// so the parse tree can be discarded once the AST is built.
+public abstract class ASTNode {
+    // Packed position of the node's first token, see SourcePositions.
+    long start;
+
+    ASTNode(long start) {
+        this.start = start;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return null;
+    }
+}
+
+class Program extends ASTNode {
+    List<Class> classes;
+    Program(long start, List<Class> classes) {
+        super(start);
+        this.classes = classes;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Class extends ASTNode {
+    SourceToken classId;
+    SourceToken parentClassId;
+    List<Feature> features;
+
+    ClassSymbol symbol;
+
+    // Set in incremental mode. Unlike symbols, it is kept between the
+    // compilations that reuse this node.
+    TypeCheckResult typeCheckResult;
+
+    Class(long start, SourceToken classId, SourceToken parentClassId, List<Feature> features) {
+        super(start);
+        this.classId = classId;
+        this.parentClassId = parentClassId;
+        this.features = features;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public ClassSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(ClassSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+abstract class Feature extends ASTNode {
+    Feature(long start) {
+        super(start);
+    }
+}
+
+class FuncFeature extends Feature {
+    List<Formal> formals;
+    SourceToken funcId;
+    SourceToken funcType;
+    Expression e;
+
+    FunctionSymbol symbol;
+    String parentClass;
+
+    FuncFeature(long start, List<Formal> formals, SourceToken funcId, SourceToken funcType, Expression e) {
+        super(start);
+        this.formals = formals;
+        this.funcId = funcId;
+        this.funcType = funcType;
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public FunctionSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(FunctionSymbol symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getParentClass() {
+        return parentClass;
+    }
+
+    public void setParentClass(String parentClass) {
+        this.parentClass = parentClass;
+    }
+}
+
+class VarFeature extends Feature {
+    SourceToken varId;
+    SourceToken varType;
+    Expression e;
+
+    IdSymbol symbol;
+    String parentClass;
+
+    VarFeature(long start, SourceToken varId, SourceToken varType, Expression e) {
+        super(start);
+        this.varId = varId;
+        this.varType = varType;
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public IdSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(IdSymbol symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getParentClass() {
+        return parentClass;
+    }
+
+    public void setParentClass(String parentClass) {
+        this.parentClass = parentClass;
+    }
+}
+
+class Formal extends ASTNode {
+    SourceToken formalId;
+    SourceToken formalType;
+
+    IdSymbol symbol;
+    String parentClass;
+    String parentMethod;
+
+    Formal(long start, SourceToken formalId, SourceToken formalType) {
+        super(start);
+        this.formalId = formalId;
+        this.formalType = formalType;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public IdSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(IdSymbol symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getParentClass() {
+        return parentClass;
+    }
+
+    public void setParentClass(String parentClass) {
+        this.parentClass = parentClass;
+    }
+
+    public String getParentMethod() {
+        return parentMethod;
+    }
+
+    public void setParentMethod(String parentMethod) {
+        this.parentMethod = parentMethod;
+    }
+}
+
+abstract class Expression extends ASTNode {
+    Expression(long start) {
+        super(start);
+    }
+}
+
+class ExplicitDispatch extends Expression {
+    Expression obj;
+    SourceToken parentType;
+    ImplicitDispatch dispatch;
+
+    ClassSymbol parentSymbol;
+
+    ExplicitDispatch(long start, Expression obj, SourceToken parentType, ImplicitDispatch dispatch) {
+        super(start);
+        this.obj = obj;
+        this.parentType = parentType;
+        this.dispatch = dispatch;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public ClassSymbol getParentSymbol() {
+        return parentSymbol;
+    }
+
+    public void setParentSymbol(ClassSymbol parentSymbol) {
+        this.parentSymbol = parentSymbol;
+    }
+}
+
+class ImplicitDispatch extends Expression {
+    SourceToken funcId;
+    List<Expression> funcParams;
+    boolean fromExplicit;
+
+    FunctionSymbol symbol;
+
+    ImplicitDispatch(long start, SourceToken funcId, List<Expression> funcParams, boolean fromExplicit) {
+        super(start);
+        this.funcId = funcId;
+        this.funcParams = funcParams;
+        this.fromExplicit = fromExplicit;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public FunctionSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(FunctionSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+class If extends Expression {
+    Expression cond;
+    Expression thenBranch;
+    Expression elseBranch;
+    If(long start, Expression cond, Expression thenBranch, Expression elseBranch) {
+        super(start);
+        this.cond = cond;
+        this.thenBranch = thenBranch;
+        this.elseBranch = elseBranch;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class While extends Expression {
+    Expression cond;
+    Expression content;
+    While(long start, Expression cond, Expression content) {
+        super(start);
+        this.cond = cond;
+        this.content = content;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Block extends Expression {
+    List<Expression> exprs;
+    Block(long start, List<Expression> exprs) {
+        super(start);
+        this.exprs = exprs;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Local extends ASTNode {
+    SourceToken varId;
+    SourceToken varType;
+    Expression varExpr;
+
+    LetOrCaseSymbol symbol;
+
+    Local(long start, SourceToken varId, SourceToken varType, Expression varExpr) {
+        super(start);
+        this.varId = varId;
+        this.varType = varType;
+        this.varExpr = varExpr;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public LetOrCaseSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(LetOrCaseSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+class Let extends Expression {
+    List<Local> localList;
+    Expression letContent;
+    Let(long start, List<Local> localList, Expression letContent) {
+        super(start);
+        this.localList = localList;
+        this.letContent = letContent;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class CaseBranch extends ASTNode {
+    SourceToken varId;
+    SourceToken varType;
+    Expression branchExpr;
+
+    LetOrCaseSymbol symbol;
+
+    CaseBranch(long start, SourceToken varId, SourceToken varType, Expression branchExpr) {
+        super(start);
+        this.varId = varId;
+        this.varType = varType;
+        this.branchExpr = branchExpr;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public LetOrCaseSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(LetOrCaseSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+class Case extends Expression {
+    Expression caseExpr;
+    List<CaseBranch> caseBranches;
+    Case(long start, Expression caseExpr, List<CaseBranch> caseBranches) {
+        super(start);
+        this.caseExpr = caseExpr;
+        this.caseBranches = caseBranches;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class New extends Expression {
+    SourceToken initType;
+
+    ClassSymbol symbol;
+    New(long start, SourceToken initType) {
+        super(start);
+        this.initType = initType;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public ClassSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(ClassSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+class Compl extends Expression {
+    Expression e;
+    Compl(long start, Expression e) {
+        super(start);
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Isvoid extends Expression {
+    Expression e;
+    Isvoid(long start, Expression e) {
+        super(start);
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class MultDiv extends Expression {
+    Expression left;
+    Expression right;
+    SourceToken op;
+    MultDiv(long start, Expression left, Expression right, SourceToken op) {
+        super(start);
+        this.left = left;
+        this.right = right;
+        this.op = op;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class PlusMinus extends Expression {
+    Expression left;
+    Expression right;
+    SourceToken op;
+    PlusMinus(long start, Expression left, Expression right, SourceToken op) {
+        super(start);
+        this.left = left;
+        this.right = right;
+        this.op = op;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Relational extends Expression {
+    Expression left;
+    Expression right;
+    SourceToken op;
+    Relational(long start, Expression left, Expression right, SourceToken op) {
+        super(start);
+        this.left = left;
+        this.right = right;
+        this.op = op;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Not extends Expression {
+    Expression e;
+    Not(long start, Expression e) {
+        super(start);
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Assign extends Expression {
+    SourceToken varId;
+    Expression e;
+
+    IdSymbol symbol;
+    Assign(long start, SourceToken varId, Expression e) {
+        super(start);
+        this.varId = varId;
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public IdSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(IdSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+class Paren extends Expression {
+    Expression e;
+    Paren(long start, Expression e) {
+        super(start);
+        this.e = e;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class Id extends Expression {
+    SourceToken varId;
+
+    IdSymbol symbol;
+
+    Id(long start, SourceToken varId) {
+        super(start);
+        this.varId = varId;
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+
+    public IdSymbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(IdSymbol symbol) {
+        this.symbol = symbol;
+    }
+}
+
+class IntegerExpr extends Expression {
+    IntegerExpr(long start) {
+        super(start);
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+
+class StringExpr extends Expression {
+    StringExpr(long start) {
+        super(start);
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
+
+class BoolExpr extends Expression {
+    BoolExpr(long start) {
+        super(start);
+    }
+
+    public <T> T accept(ASTVisitor<T> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -0,0 +1,189 @@
+package cool.compiler;
+
+// Clears the symbols and names the semantic passes attach to AST nodes, so
+// that an AST kept from a previous compilation can be analyzed again as if
+// it had just been built.
+public class AnnotationResetVisitor implements ASTVisitor<Void> {
+    @Override
+    public Void visit(Program program) {
+        program.classes.forEach(cls -> cls.accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visit(Class classs) {
+        classs.symbol = null;
+        classs.features.forEach(feature -> feature.accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visit(FuncFeature funcFeature) {
+        funcFeature.symbol = null;
+        funcFeature.parentClass = null;
+        funcFeature.formals.forEach(formal -> formal.accept(this));
+        funcFeature.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(VarFeature varFeature) {
+        varFeature.symbol = null;
+        varFeature.parentClass = null;
+        if (varFeature.e != null)
+            varFeature.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Formal formal) {
+        formal.symbol = null;
+        formal.parentClass = null;
+        formal.parentMethod = null;
+        return null;
+    }
+
+    @Override
+    public Void visit(ExplicitDispatch explicitDispatch) {
+        explicitDispatch.parentSymbol = null;
+        explicitDispatch.obj.accept(this);
+        explicitDispatch.dispatch.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(ImplicitDispatch implicitDispatch) {
+        implicitDispatch.symbol = null;
+        implicitDispatch.funcParams.forEach(param -> param.accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visit(If iff) {
+        iff.cond.accept(this);
+        iff.thenBranch.accept(this);
+        iff.elseBranch.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(While whilee) {
+        whilee.cond.accept(this);
+        whilee.content.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Block block) {
+        block.exprs.forEach(expr -> expr.accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visit(Local local) {
+        local.symbol = null;
+        if (local.varExpr != null)
+            local.varExpr.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Let let) {
+        let.localList.forEach(local -> local.accept(this));
+        let.letContent.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(CaseBranch caseBranch) {
+        caseBranch.symbol = null;
+        caseBranch.branchExpr.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Case casee) {
+        casee.caseExpr.accept(this);
+        casee.caseBranches.forEach(branch -> branch.accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visit(New neww) {
+        neww.symbol = null;
+        return null;
+    }
+
+    @Override
+    public Void visit(Compl compl) {
+        compl.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Isvoid isvoid) {
+        isvoid.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(MultDiv multDiv) {
+        multDiv.left.accept(this);
+        multDiv.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(PlusMinus plusMinus) {
+        plusMinus.left.accept(this);
+        plusMinus.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Relational relational) {
+        relational.left.accept(this);
+        relational.right.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Not not) {
+        not.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Assign assign) {
+        assign.symbol = null;
+        assign.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Paren paren) {
+        paren.e.accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visit(Id id) {
+        id.symbol = null;
+        return null;
+    }
+
+    @Override
+    public Void visit(IntegerExpr integerExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visit(StringExpr stringExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visit(BoolExpr boolExpr) {
+        return null;
+    }
+}
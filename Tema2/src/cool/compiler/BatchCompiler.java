@@ -0,0 +1,290 @@
+package cool.compiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Compiles many independent programs in one JVM, listed by a manifest, on a
+// fixed number of worker threads. Like the compile server, this saves every
+// program the start of a JVM and keeps the lexer and parser caches and the
+// JIT-compiled code warm, while each compilation still gets its own context.
+//
+// Each line of the manifest lists the files of a program. A directory stands
+// for the .cl files in it, in name order. Relative paths are resolved against
+// the manifest's directory; empty lines and lines starting with '#' are
+// skipped. Files given with --shared, such as a common main.cl, are added
+// after the files of every program, and any other option is passed on to
+// each compilation. Files recurring across programs, such as those shared,
+// are parsed at most once per worker while they stay in the cache, and their
+// ASTs reused, like those of the compile server's requests.
+//
+// What each compilation prints goes to a diagnostics file named after the
+// program's first file or directory, in the directory given by --output,
+// the current one by default, even for programs that failed outright, such as
+// on a missing file or on running out of memory. Throughput and latency
+// percentiles are printed once all programs are done, and the batch exits with
+// a failure status if any program failed.
+public class BatchCompiler {
+    private static class Program {
+        final String name;
+        final List<String> files;
+
+        Program(String name, List<String> files) {
+            this.name = name;
+            this.files = files;
+        }
+    }
+
+    private static class Result {
+        // The program is correct.
+        final boolean correct;
+
+        // The compilation failed outright, such as on a missing file.
+        final boolean failed;
+
+        final long latencyNanos;
+
+        Result(boolean correct, boolean failed, long latencyNanos) {
+            this.correct = correct;
+            this.failed = failed;
+            this.latencyNanos = latencyNanos;
+        }
+    }
+
+    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.compiler.BatchCompiler
+    //     [--workers=N] [--output=DIR] [--shared=FILE]... [compiler options] MANIFEST
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        var outputDir = new File(".");
+        var shared = new ArrayList<String>();
+        var options = new ArrayList<String>();
+        String manifest = null;
+
+        // Wrong options would fail every compilation the same way, so they
+        // are reported once, before any program is compiled.
+        try {
+            for (var arg : args) {
+                if (arg.startsWith("--workers=")) {
+                    workers = workers(arg);
+                } else if (arg.startsWith("--output=")) {
+                    outputDir = new File(arg.substring("--output=".length()));
+                } else if (arg.startsWith("--shared=")) {
+                    shared.add(arg.substring("--shared=".length()));
+                } else if (arg.startsWith("--")) {
+                    options.add(arg);
+                } else if (manifest == null) {
+                    manifest = arg;
+                } else {
+                    throw new IllegalArgumentException("More than one manifest given");
+                }
+            }
+
+            CompilerOptions.parse(options.toArray(new String[0]));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+
+        if (manifest == null) {
+            System.err.println("No manifest given");
+            return;
+        }
+
+        var programs = readManifest(new File(manifest), shared);
+        outputDir.mkdirs();
+
+        // Files parsed by earlier programs, reused by later ones.
+        var fileCache = new FileCache(FileCache.DEFAULT_MAX_BYTES, workers);
+
+        var pool = Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+        List<Result> results;
+        try {
+            results = compileAll(programs, options, outputDir, fileCache, pool);
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // A batch where some programs could not be compiled at all is not a
+        // success, even though the others were.
+        if (printSummary(results, workers, elapsed) > 0)
+            System.exit(1);
+    }
+
+    private static int workers(String arg) {
+        try {
+            int workers = Integer.parseInt(arg.substring("--workers=".length()));
+            if (workers > 0)
+                return workers;
+        } catch (NumberFormatException e) {
+            // Reported below, like numbers that are not positive.
+        }
+
+        throw new IllegalArgumentException("Invalid number of workers in " + arg);
+    }
+
+    private static List<Program> readManifest(File manifest, List<String> shared) throws IOException {
+        var baseDir = manifest.getAbsoluteFile().getParentFile();
+        var programs = new ArrayList<Program>();
+        var names = new HashSet<String>();
+
+        for (var line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            var entries = line.split("\\s+");
+            var files = new ArrayList<String>();
+            for (var entry : entries) {
+                var file = new File(entry);
+                if (!file.isAbsolute())
+                    file = new File(baseDir, entry);
+
+                if (!file.isDirectory()) {
+                    files.add(file.getPath());
+                    continue;
+                }
+
+                var sources = file.listFiles((dir, name) -> name.endsWith(".cl"));
+                if (sources == null)
+                    throw new IOException("Cannot list " + file);
+
+                Arrays.sort(sources);
+                for (var source : sources)
+                    files.add(source.getPath());
+            }
+            files.addAll(shared);
+
+            programs.add(new Program(uniqueName(new File(entries[0]).getName(), names), files));
+        }
+
+        return programs;
+    }
+
+    // Programs named alike, such as two files with the same name in different
+    // directories, get numbered so their diagnostics files stay apart.
+    private static String uniqueName(String entry, Set<String> names) {
+        var name = entry.endsWith(".cl") ? entry.substring(0, entry.length() - ".cl".length()) : entry;
+
+        var unique = name;
+        for (int i = 2; !names.add(unique); i++)
+            unique = name + "-" + i;
+
+        return unique;
+    }
+
+    // Results come back in manifest order.
+    private static List<Result> compileAll(List<Program> programs, List<String> options, File outputDir,
+                                           FileCache fileCache, ExecutorService pool) throws InterruptedException {
+        var futures = new ArrayList<Future<Result>>();
+        for (var program : programs)
+            futures.add(pool.submit(() -> compile(program, options, outputDir, fileCache)));
+
+        var results = new ArrayList<Result>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                // Errors the compilation does not catch, such as running out
+                // of memory or of stack on deeply nested code, get here, as
+                // do failures to write the diagnostics file. The program
+                // still gets one, unless writing it is what failed.
+                var program = programs.get(i);
+                System.err.println("Could not compile " + program.name + ": " + e.getCause());
+                try {
+                    writeDiagnostics(program, outputDir, e.getCause() + System.lineSeparator());
+                } catch (IOException ignored) {
+                    // Already reported above.
+                }
+                results.add(new Result(false, true, 0));
+            }
+        }
+
+        return results;
+    }
+
+    // Compiles a program, printing what it reports, in the order it is
+    // reported, to its diagnostics file.
+    private static Result compile(Program program, List<String> options, File outputDir, FileCache fileCache)
+            throws IOException {
+        var args = new ArrayList<>(options);
+        args.addAll(program.files);
+
+        var output = new StringBuilder();
+        boolean correct = false;
+        boolean failed = false;
+
+        long start = System.nanoTime();
+        try {
+            correct = Compiler.compile(args.toArray(new String[0]),
+                    message -> output.append(message).append(System.lineSeparator()),
+                    message -> output.append(message).append(System.lineSeparator()),
+                    fileCache);
+        } catch (IOException | RuntimeException e) {
+            // Like the compile server, report failures, such as missing
+            // files, with the program rather than stopping the batch.
+            output.append(e).append(System.lineSeparator());
+            failed = true;
+        }
+        long latency = System.nanoTime() - start;
+
+        writeDiagnostics(program, outputDir, output);
+
+        return new Result(correct, failed, latency);
+    }
+
+    private static void writeDiagnostics(Program program, File outputDir, CharSequence output) throws IOException {
+        Files.writeString(new File(outputDir, program.name + ".out").toPath(), output, StandardCharsets.UTF_8);
+    }
+
+    // Programs that failed outright are left out of the latency percentiles,
+    // as they may have stopped anywhere short of a full compilation. Returns
+    // their number.
+    private static int printSummary(List<Result> results, int workers, long elapsedNanos) {
+        int correct = 0;
+        int failed = 0;
+        var compiled = new ArrayList<Long>();
+        for (var result : results) {
+            if (result.correct)
+                correct++;
+            if (result.failed)
+                failed++;
+            else
+                compiled.add(result.latencyNanos);
+        }
+
+        var latencies = new long[compiled.size()];
+        for (int i = 0; i < latencies.length; i++)
+            latencies[i] = compiled.get(i);
+        Arrays.sort(latencies);
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%d program(s) in %.3f s on %d worker(s): %d correct, %d with errors, %d failed%n",
+                results.size(), seconds, workers, correct, results.size() - correct - failed, failed);
+        System.out.printf("Throughput: %.1f programs/s%n", results.size() / seconds);
+        System.out.printf("Latency ms, over %d compiled: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+                latencies.length,
+                percentile(latencies, 50) / 1e6, percentile(latencies, 90) / 1e6,
+                percentile(latencies, 99) / 1e6, percentile(latencies, 100) / 1e6);
+        return failed;
+    }
+
+    // Nearest-rank percentile of sorted values.
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0)
+            return 0;
+
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
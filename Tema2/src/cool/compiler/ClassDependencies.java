@@ -0,0 +1,124 @@
+package cool.compiler;
+
+import cool.structures.ClassSymbol;
+import cool.structures.IdSymbol;
+import cool.structures.Namespace;
+import cool.structures.Scope;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fingerprints of the signatures of the classes of one compilation, used by
+// incremental mode to tell whether what a class body depends on changed since
+// it was last type checked. A class's fingerprint covers its parent, its
+// attributes' types and its methods' signatures, along with the fingerprint
+// of its parent, so that it changes whenever anything inherited does.
+class ClassDependencies {
+    private final Scope globals;
+
+    // The names of all classes of the program. When a class is added or
+    // removed, type names may resolve differently anywhere, so every class
+    // is checked again.
+    final String classNames;
+
+    // Fingerprints are shared by the threads checking classes in parallel.
+    private final Map<ClassSymbol, String> fingerprints = new ConcurrentHashMap<>();
+
+    ClassDependencies(Scope globals, Program program) {
+        this.globals = globals;
+
+        var names = new ArrayList<String>();
+        for (var classs : program.classes)
+            if (classs.symbol != null)
+                names.add(classs.symbol.getName());
+        names.sort(null);
+        this.classNames = String.join(",", names);
+    }
+
+    // The fingerprint of the class with the given name, or null if there is
+    // no such class.
+    String fingerprint(String className) {
+        var classSymbol = globals.lookup(Namespace.CLASS, className);
+        if (classSymbol == null)
+            return null;
+
+        return fingerprint((ClassSymbol) classSymbol);
+    }
+
+    String fingerprint(ClassSymbol classSymbol) {
+        var known = fingerprints.get(classSymbol);
+        if (known != null)
+            return known;
+
+        // Walk up to the first ancestor with a known fingerprint, then compute
+        // the ones below it top down. Classes in an inheritance cycle get a
+        // fingerprint too, but it depends on where the walk started, so it is
+        // not kept.
+        var chain = new ArrayList<ClassSymbol>();
+        var current = classSymbol;
+        String base = "";
+        boolean cycle = false;
+        while (current != null) {
+            known = fingerprints.get(current);
+            if (known != null) {
+                base = known;
+                break;
+            }
+
+            if (chain.contains(current)) {
+                cycle = true;
+                base = "cycle";
+                break;
+            }
+
+            chain.add(current);
+            current = current.getInheritedClass();
+        }
+
+        String fingerprint = base;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            fingerprint = hash(signature(chain.get(i)) + "|" + fingerprint);
+            if (!cycle)
+                fingerprints.put(chain.get(i), fingerprint);
+        }
+
+        return fingerprint;
+    }
+
+    private static String signature(ClassSymbol classSymbol) {
+        var signature = new StringBuilder(classSymbol.getName());
+        if (classSymbol.getInheritedClass() != null)
+            signature.append(" inherits ").append(classSymbol.getInheritedClass().getName());
+
+        for (var attribute : classSymbol.getAttributes().values())
+            signature.append(';').append(attribute.getName()).append(':').append(typeName(attribute));
+
+        for (var method : classSymbol.getMethods().values()) {
+            signature.append(';').append(method.getName()).append('(');
+            for (var formal : method.getSymbols().values())
+                signature.append(formal.getName()).append(':').append(typeName((IdSymbol) formal)).append(',');
+            signature.append("):").append(typeName(method));
+        }
+
+        return signature.toString();
+    }
+
+    private static String typeName(IdSymbol symbol) {
+        return symbol.getType() == null ? "?" : symbol.getType().getName();
+    }
+
+    private static String hash(String text) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+}
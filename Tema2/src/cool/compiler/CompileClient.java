@@ -0,0 +1,52 @@
+package cool.compiler;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+// Drop-in replacement for running Compiler directly: takes the same arguments
+// and prints the same output, but has a running CompileServer do the work.
+// If no server is listening, or an argument has a line break, which a request
+// cannot carry, it compiles in-process instead.
+public class CompileClient {
+    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.compiler.CompileClient file1.cl file2.cl ...
+    public static void main(String[] args) throws IOException {
+        for (var arg : args) {
+            if (arg.indexOf('\n') >= 0 || arg.indexOf('\r') >= 0) {
+                Compiler.main(args);
+                return;
+            }
+        }
+
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(UnixDomainSocketAddress.of(CompileServer.socketPath()));
+        } catch (IOException e) {
+            // No server is running, or none this user may connect to.
+            Compiler.main(args);
+            return;
+        }
+
+        try (channel;
+             var in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             var out = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8))) {
+            // The server may run in another directory, so files, and options
+            // naming files, are sent with absolute paths. Messages only show
+            // the base names of files.
+            out.println(args.length);
+            for (var arg : args)
+                out.println(CompilerOptions.absolutePaths(arg));
+            out.flush();
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(CompileServer.OUTPUT_PREFIX))
+                    System.out.println(line.substring(CompileServer.OUTPUT_PREFIX.length()));
+                else if (line.startsWith(CompileServer.ERROR_PREFIX))
+                    System.err.println(line.substring(CompileServer.ERROR_PREFIX.length()));
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package cool.compiler;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Long-running compiler process, listening on a Unix-domain socket. Lexer and
+// parser DFA caches, the ATNs they are built from and the JIT-compiled code
+// all stay warm between requests, which a separate JVM per compilation would
+// rebuild every time. Requests are served concurrently, each with its own
+// compilation context.
+//
+// The server reads the files and writes the caches its requests name, as the
+// user running it, so only that user may connect: the socket lives in a
+// directory only they can access, rather than on a port open to every local
+// user.
+//
+// A request is the number of command line arguments of a compilation, then
+// the arguments, each on a line of its own, so that empty arguments are kept
+// as well. The response is made of the lines the compiler
+// prints, each prefixed by the stream it belongs to, OUTPUT_PREFIX or
+// ERROR_PREFIX, and ends when the server closes the connection.
+public class CompileServer {
+    // System property selecting the socket, for both the server and the
+    // client. By default, it is in a directory of the user's own under the
+    // temporary directory.
+    static final String SOCKET_PROPERTY = "cool.server.socket";
+
+    static final String OUTPUT_PREFIX = "1 ";
+    static final String ERROR_PREFIX = "2 ";
+
+    // Files parsed by past requests, reused by later ones. Requests are
+    // served by as many threads as there are clients, but seldom by more
+    // than there are processors at once.
+    private static final FileCache fileCache = new FileCache(FileCache.DEFAULT_MAX_BYTES,
+            Runtime.getRuntime().availableProcessors());
+
+    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.compiler.CompileServer
+    public static void main(String[] args) throws IOException {
+        var socketPath = socketPath();
+        ExecutorService workers = Executors.newCachedThreadPool();
+
+        // A socket file left by a server that is no longer running would
+        // keep this one from binding.
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            System.err.println("A compile server is already listening on " + socketPath);
+            return;
+        } catch (IOException e) {
+            Files.deleteIfExists(socketPath);
+        }
+
+        try (var serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            serverChannel.bind(UnixDomainSocketAddress.of(socketPath));
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+                Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException e) {
+                    // Removed by the next server to start.
+                }
+            }));
+            System.err.println("Compile server listening on " + socketPath);
+
+            while (true) {
+                var channel = serverChannel.accept();
+                workers.execute(() -> serve(channel));
+            }
+        }
+    }
+
+    // Creates the directory holding the default socket, accessible to the
+    // current user only, where the file system has POSIX permissions.
+    static Path socketPath() throws IOException {
+        var property = System.getProperty(SOCKET_PROPERTY);
+        if (property != null)
+            return Path.of(property).toAbsolutePath();
+
+        var directory = Path.of(System.getProperty("java.io.tmpdir"),
+                "cool-compile-server-" + System.getProperty("user.name"));
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory)) {
+            if (posix)
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            else
+                Files.createDirectories(directory);
+        }
+
+        // A directory someone else created, or opened up, is not trusted.
+        if (posix) {
+            var user = FileSystems.getDefault().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(System.getProperty("user.name"));
+            if (!Files.getOwner(directory).equals(user)
+                    || !Files.getPosixFilePermissions(directory).equals(PosixFilePermissions.fromString("rwx------")))
+                throw new IOException("Socket directory " + directory + " must be accessible to its owner only");
+        }
+
+        return directory.resolve("server.sock");
+    }
+
+    private static void serve(SocketChannel channel) {
+        try (channel;
+             var in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             var out = new PrintWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8))) {
+            var args = readRequest(in);
+            if (args == null) {
+                send(out, ERROR_PREFIX, "Malformed request");
+                return;
+            }
+
+            try {
+                Compiler.compile(args.toArray(new String[0]),
+                        message -> send(out, OUTPUT_PREFIX, message),
+                        message -> send(out, ERROR_PREFIX, message),
+                        fileCache);
+            } catch (IOException | RuntimeException e) {
+                // Report failures, such as missing input files, to the client
+                // instead of bringing the server down.
+                send(out, ERROR_PREFIX, e.toString());
+            }
+        } catch (IOException e) {
+            System.err.println("Could not serve request: " + e.getMessage());
+        }
+    }
+
+    // The arguments of a request, or null if it does not have as many as it
+    // announces.
+    private static List<String> readRequest(BufferedReader in) throws IOException {
+        var count = in.readLine();
+        if (count == null || !count.matches("\\d{1,9}"))
+            return null;
+
+        var args = new ArrayList<String>();
+        for (int i = Integer.parseInt(count); i > 0; i--) {
+            var arg = in.readLine();
+            if (arg == null)
+                return null;
+            args.add(arg);
+        }
+
+        return args;
+    }
+
+    // Messages may span several lines, such as those quoting the text of an
+    // unterminated string, so every line gets its own prefix.
+    private static void send(PrintWriter out, String prefix, String message) {
+        message.lines().forEach(line -> out.println(prefix + line));
+    }
+}
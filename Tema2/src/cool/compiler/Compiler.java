@@ -1,149 +1,249 @@
-package cool.compiler;
-
-import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.tree.*;
-
-import cool.lexer.*;
-import cool.parser.*;
-import cool.structures.SymbolTable;
-
-import java.io.*;
-import java.util.stream.Collectors;
-
-
-public class Compiler {
-    // Annotates class nodes with the names of files where they are defined.
-    public static ParseTreeProperty<String> fileNames = new ParseTreeProperty<>();
-
-    public static void main(String[] args) throws IOException {
-        if (args.length == 0) {
-            System.err.println("No file(s) given");
-            return;
-        }
-        
-        CoolLexer lexer = null;
-        CommonTokenStream tokenStream = null;
-        CoolParser parser = null;
-        ParserRuleContext globalTree = null;
-        
-        // True if any lexical or syntax errors occur.
-        boolean lexicalSyntaxErrors = false;
-        
-        // Parse each input file and build one big parse tree out of
-        // individual parse trees.
-        for (var fileName : args) {
-            var input = CharStreams.fromFileName(fileName);
-            
-            // Lexer
-            if (lexer == null)
-                lexer = new CoolLexer(input);
-            else
-                lexer.setInputStream(input);
-
-            // Token stream
-            if (tokenStream == null)
-                tokenStream = new CommonTokenStream(lexer);
-            else
-                tokenStream.setTokenSource(lexer);
-                
-            /*
-            // Test lexer only.
-            tokenStream.fill();
-            List<Token> tokens = tokenStream.getTokens();
-            tokens.stream().forEach(token -> {
-                var text = token.getText();
-                var name = CoolLexer.VOCABULARY.getSymbolicName(token.getType());
-                
-                System.out.println(text + " : " + name);
-                //System.out.println(token);
-            });
-            */
-            
-            // Parser
-            if (parser == null)
-                parser = new CoolParser(tokenStream);
-            else
-                parser.setTokenStream(tokenStream);
-            
-            // Customized error listener, for including file names in error
-            // messages.
-            var errorListener = new BaseErrorListener() {
-                public boolean errors = false;
-                
-                @Override
-                public void syntaxError(Recognizer<?, ?> recognizer,
-                                        Object offendingSymbol,
-                                        int line, int charPositionInLine,
-                                        String msg,
-                                        RecognitionException e) {
-                    String newMsg = "\"" + new File(fileName).getName() + "\", line " +
-                                        line + ":" + (charPositionInLine + 1) + ", ";
-                    
-                    Token token = (Token)offendingSymbol;
-                    if (token.getType() == CoolLexer.ERROR)
-                        newMsg += "Lexical error: " + token.getText();
-                    else
-                        newMsg += "Syntax error: " + msg;
-                    
-                    System.err.println(newMsg);
-                    errors = true;
-                }
-            };
-            
-            parser.removeErrorListeners();
-            parser.addErrorListener(errorListener);
-            
-            // Actual parsing
-            var tree = parser.program();
-            if (globalTree == null)
-                globalTree = tree;
-            else
-                // Add the current parse tree's children to the global tree.
-                for (int i = 0; i < tree.getChildCount(); i++)
-                    globalTree.addAnyChild(tree.getChild(i));
-                    
-            // Annotate class nodes with file names, to be used later
-            // in semantic error messages.
-            for (int i = 0; i < tree.getChildCount(); i++) {
-                var child = tree.getChild(i);
-                // The only ParserRuleContext children of the program node
-                // are class nodes.
-                if (child instanceof ParserRuleContext)
-                    fileNames.put(child, fileName);
-            }
-            
-            // Record any lexical or syntax errors.
-            lexicalSyntaxErrors |= errorListener.errors;
-        }
-
-        // Stop before semantic analysis phase, in case errors occurred.
-        if (lexicalSyntaxErrors) {
-            System.err.println("Compilation halted");
-            return;
-        }
-
-        var astConstructionVisitor = new ASTConstructionVisitor();
-
-        var ast = astConstructionVisitor.visit(globalTree);
-        
-        // Populate global scope.
-        SymbolTable.defineBasicClasses();
-        
-        var definitionPassVisitor = new DefinitionPassVisitor();
-        ast.accept(definitionPassVisitor);
-
-        var connectionPassVisitor = new ConnectionPassVisitor();
-        ast.accept(connectionPassVisitor);
-
-        var verificationPassVisitor = new VerificationPassVisitor();
-        ast.accept(verificationPassVisitor);
-
-        var typePassVisitor = new TypePassVisitor();
-        ast.accept(typePassVisitor);
-        
-        if (SymbolTable.hasSemanticErrors()) {
-            System.err.println("Compilation halted");
-            return;
-        }
-    }
-}
+package cool.compiler;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.tree.*;
+
+import cool.lexer.*;
+import cool.parser.*;
+import cool.structures.CompilationContext;
+import cool.structures.Diagnostic;
+import cool.structures.Diagnostics;
+import cool.structures.SourceFiles;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+
+public class Compiler {
+    // Lexers and parsers kept by each thread between the files, and the
+    // compilations, it parses. They only hold state of the latest file parsed.
+    private static final ThreadLocal<FileParser> fileParsers = ThreadLocal.withInitial(FileParser::new);
+
+    public static void main(String[] args) throws IOException {
+        compile(args, message -> System.out.println(message), message -> System.err.println(message));
+    }
+
+    // Runs one compilation, passing its error messages to the given sink all
+    // at once when it is done, and any other output, such as statistics, to
+    // the output sink.
+    // Compilations do not share any state, so they may run concurrently.
+    // Returns true if the program is correct.
+    public static boolean compile(String[] args, Consumer<String> outputSink, Consumer<String> errorSink) throws IOException {
+        return compile(args, outputSink, errorSink, null);
+    }
+
+    // Unchanged files are taken from the given cache, if any, instead of
+    // being parsed again. Returns true if the program is correct.
+    static boolean compile(String[] args, Consumer<String> outputSink, Consumer<String> errorSink,
+                           FileCache fileCache) throws IOException {
+        CompilerOptions options;
+        try {
+            options = CompilerOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            errorSink.accept(e.getMessage());
+            return false;
+        }
+
+        if (options.files.isEmpty()) {
+            errorSink.accept("No file(s) given");
+            return false;
+        }
+
+        var inputs = new ArrayList<Input>();
+        for (var fileName : options.files)
+            inputs.add(new Input(fileName));
+
+        // Either cache looks files up by their contents, so those are read
+        // up front, once, and the same bytes are parsed later on.
+        var diagnosticsCache = DiagnosticsCache.forOptions(options);
+        if (diagnosticsCache != null || fileCache != null)
+            for (var input : inputs)
+                input.contents = Files.readAllBytes(Path.of(input.fileName));
+
+        // Inputs compiled before get their diagnostics back from the cache.
+        // Otherwise what the compilation reports is kept for next time.
+        String cacheKey = null;
+        var reported = new StringBuilder();
+        Consumer<String> diagnosticsSink = errorSink;
+        if (diagnosticsCache != null) {
+            cacheKey = diagnosticsCache.key(options, inputs.stream().map(input -> input.contents).toList());
+            var entry = diagnosticsCache.get(cacheKey);
+            if (entry != null) {
+                if (!entry.diagnostics.isEmpty())
+                    errorSink.accept(entry.diagnostics);
+                return entry.correct;
+            }
+
+            diagnosticsSink = message -> {
+                reported.append(message);
+                errorSink.accept(message);
+            };
+        }
+
+        var context = new CompilationContext(new Diagnostics(options.diagnosticRenderer, diagnosticsSink),
+                options.errorLimits());
+
+        var profiler = new Profiler(options.profile, options.files);
+        var parsedFiles = parseFiles(options, inputs, context.getFiles(), fileCache, profiler);
+        boolean correct;
+        try {
+            correct = compile(options, context, parsedFiles, outputSink, profiler);
+        } finally {
+            context.flush();
+            profiler.print(outputSink, options.profileJson);
+
+            if (fileCache != null)
+                fileCache.release(parsedFiles);
+        }
+
+        if (diagnosticsCache != null)
+            diagnosticsCache.put(cacheKey, new DiagnosticsCache.Entry(correct, reported.toString()));
+
+        return correct;
+    }
+
+    private static boolean compile(CompilerOptions options, CompilationContext context,
+                                   List<ParsedFile> parsedFiles, Consumer<String> outputSink, Profiler profiler) {
+        // True if any lexical or syntax errors occur.
+        boolean lexicalSyntaxErrors = false;
+        
+        if (options.parseStats)
+            printParseStatistics(parsedFiles, outputSink);
+
+        for (var parsedFile : parsedFiles) {
+            // Report this file's lexical and syntax errors.
+            parsedFile.errors.forEach(context::report);
+
+            // Record any lexical or syntax errors.
+            lexicalSyntaxErrors |= parsedFile.hasErrors();
+        }
+
+        // Stop before semantic analysis phase, in case errors occurred.
+        if (lexicalSyntaxErrors) {
+            context.report(Diagnostic.of(Diagnostic.Code.HALTED, "Compilation halted"));
+            return false;
+        }
+
+        // Build one program out of the classes of all files, in the order the
+        // files were given.
+        var classes = new ArrayList<Class>();
+        parsedFiles.forEach(parsedFile -> classes.addAll(parsedFile.ast.classes));
+
+        var firstProgram = parsedFiles.get(0).ast;
+        var ast = new Program(firstProgram.start, classes);
+        
+        var passManager = new PassManager(context, options.legacyPasses, options.parallelTypes, options.incremental);
+        passManager.run(ast, profiler);
+        
+        if (context.hasSemanticErrors()) {
+            context.report(Diagnostic.of(Diagnostic.Code.HALTED, "Compilation halted"));
+            return false;
+        }
+
+        return true;
+    }
+
+    // Lexes and parses every input file, and builds the AST of each file
+    // parsed without errors. Files go through this one at a time on each
+    // thread, and only their ASTs and errors are kept, so memory holds a
+    // single parse tree per thread rather than those of the whole program.
+    // In parallel mode each file is handled by its own
+    // worker, with lexer and parser instances owned by that worker's thread.
+    // Either way, the results come back in argument order. Threads keep their
+    // instances between compilations, so a long-running process does not
+    // build them again for every request.
+    private static List<ParsedFile> parseFiles(CompilerOptions options, List<Input> inputs, SourceFiles files,
+                                               FileCache fileCache, Profiler profiler) throws IOException {
+        // Files reused from the cache keep the ids they were parsed with, so
+        // they are given theirs before the others get the lowest ones left.
+        if (fileCache != null) {
+            for (var input : inputs) {
+                input.fingerprint = FileCache.fingerprint(input.contents);
+
+                var parsedFile = fileCache.take(input.fileName, input.fingerprint);
+                if (parsedFile != null && files.claim(parsedFile.fileId, input.fileName))
+                    input.parsedFile = parsedFile;
+            }
+        }
+
+        for (var input : inputs)
+            if (input.parsedFile == null)
+                input.fileId = files.add(input.fileName);
+
+        if (!options.parallelParse) {
+            var parsedFiles = new ArrayList<ParsedFile>();
+            for (var input : inputs)
+                parsedFiles.add(loadFile(input, profiler));
+
+            return parsedFiles;
+        }
+
+        try {
+            return inputs.parallelStream()
+                    .map(input -> {
+                        try {
+                            return loadFile(input, profiler);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // An input file on its way to being parsed. When a cache needs them, its
+    // contents are read beforehand, and parsed from there.
+    private static class Input {
+        final String fileName;
+        int fileId;
+        byte[] contents;
+        FileFingerprint fingerprint;
+        ParsedFile parsedFile;
+
+        Input(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    // Parses a file and builds its AST, unless the cache still held them.
+    private static ParsedFile loadFile(Input input, Profiler profiler) throws IOException {
+        if (input.parsedFile != null)
+            return input.parsedFile;
+
+        if (input.contents == null)
+            return fileParsers.get().parse(input.fileName, input.fileId, CharStreams.fromFileName(input.fileName),
+                    profiler);
+
+        var parsedFile = fileParsers.get().parse(input.fileName, input.fileId,
+                CharStreams.fromString(new String(input.contents, StandardCharsets.UTF_8), input.fileName), profiler);
+        parsedFile.fingerprint = input.fingerprint;
+        input.contents = null;
+        return parsedFile;
+    }
+
+    // Reports, on the output sink, the prediction mode each file was parsed
+    // with and how often the slower LL stage had to take over from SLL.
+    private static void printParseStatistics(List<ParsedFile> parsedFiles, Consumer<String> outputSink) {
+        int fallbacks = 0;
+        for (var parsedFile : parsedFiles) {
+            outputSink.accept("\"" + new File(parsedFile.fileName).getName() + "\", "
+                    + (parsedFile.reused ? "reused, " : "") + "parsed with " + parsedFile.predictionMode);
+
+            if (parsedFile.predictionMode == PredictionMode.LL)
+                fallbacks++;
+        }
+
+        outputSink.accept("Parse statistics: " + parsedFiles.size() + " file(s), "
+                + (parsedFiles.size() - fallbacks) + " with SLL, "
+                + fallbacks + " LL fallback(s)");
+    }
+}
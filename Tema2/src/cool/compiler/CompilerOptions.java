@@ -0,0 +1,160 @@
+package cool.compiler;
+
+import cool.structures.DiagnosticRenderer;
+import cool.structures.ErrorLimits;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// Command line options. Arguments starting with "--" select options, all the
+// others are input files, kept in the order they were given.
+class CompilerOptions {
+    // Lex and parse the input files concurrently, each on its own worker.
+    boolean parallelParse = false;
+
+    // Print which prediction mode parsed each file and how many files needed
+    // the full LL fallback.
+    boolean parseStats = false;
+
+    // Run each semantic pass in its own traversal, as it used to be done,
+    // instead of fusing them into two traversals.
+    boolean legacyPasses = false;
+
+    // Type check classes concurrently. Errors are still reported in the
+    // order of a sequential run.
+    boolean parallelTypes = false;
+
+    // Reuse the type check results of classes whose files have not changed
+    // since a previous compilation run by the same process, as long as what
+    // they depend on has not changed either. Such processes reuse the syntax
+    // errors and ASTs of unchanged files in any case.
+    boolean incremental = false;
+
+    // How error messages are printed, selected by --diagnostics=text or
+    // --diagnostics=json.
+    DiagnosticRenderer diagnosticRenderer = DiagnosticRenderer.TEXT;
+
+    // Stop after reporting this many semantic errors in total, or in a single
+    // pass, given by --max-errors=N and --max-pass-errors=N. 0 means no limit.
+    int maxErrors = 0;
+    int maxPassErrors = 0;
+
+    // Stop checking expressions once an error is found in them.
+    boolean suppressCascades = false;
+
+    // Print the time and memory each phase took, as a table with --profile
+    // or as JSON with --profile=json.
+    boolean profile = false;
+    boolean profileJson = false;
+
+    // Keep the diagnostics of each compilation in the directory given by
+    // --cache=DIR, and reuse them for identical inputs. Least recently used
+    // ones are evicted beyond --cache-size=MB.
+    String cacheDirectory = null;
+    long cacheSize = 64L << 20;
+
+    final List<String> files = new ArrayList<>();
+
+    static CompilerOptions parse(String[] args) {
+        var options = new CompilerOptions();
+
+        for (var arg : args) {
+            if (!arg.startsWith("--")) {
+                options.files.add(arg);
+                continue;
+            }
+
+            if (arg.startsWith("--diagnostics=")) {
+                options.diagnosticRenderer = switch (arg.substring("--diagnostics=".length())) {
+                    case "text" -> DiagnosticRenderer.TEXT;
+                    case "json" -> DiagnosticRenderer.JSON_LINES;
+                    default -> throw new IllegalArgumentException("Unknown diagnostics format in " + arg);
+                };
+                continue;
+            }
+
+            if (arg.startsWith("--max-errors=")) {
+                options.maxErrors = limit(arg, "--max-errors=");
+                continue;
+            }
+
+            if (arg.startsWith("--max-pass-errors=")) {
+                options.maxPassErrors = limit(arg, "--max-pass-errors=");
+                continue;
+            }
+
+            if (arg.startsWith("--cache=")) {
+                options.cacheDirectory = arg.substring("--cache=".length());
+                continue;
+            }
+
+            if (arg.startsWith("--cache-size=")) {
+                options.cacheSize = (long) size(arg, "--cache-size=") << 20;
+                continue;
+            }
+
+            switch (arg) {
+                case "--parallel-parse" -> options.parallelParse = true;
+                case "--parse-stats" -> options.parseStats = true;
+                case "--legacy-passes" -> options.legacyPasses = true;
+                case "--parallel-types" -> options.parallelTypes = true;
+                case "--incremental" -> options.incremental = true;
+                case "--suppress-cascades" -> options.suppressCascades = true;
+                case "--profile" -> options.profile = true;
+                case "--profile=json" -> {
+                    options.profile = true;
+                    options.profileJson = true;
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        return options;
+    }
+
+    // Options whose value is a path.
+    private static final List<String> PATH_OPTIONS = List.of("--cache=");
+
+    // The same argument, with any path it holds, either as an input file or
+    // as the value of an option, made absolute against the current
+    // directory.
+    static String absolutePaths(String arg) {
+        if (!arg.startsWith("--"))
+            return new File(arg).getAbsolutePath();
+
+        for (var prefix : PATH_OPTIONS)
+            if (arg.startsWith(prefix))
+                return prefix + new File(arg.substring(prefix.length())).getAbsolutePath();
+
+        return arg;
+    }
+
+    private static int limit(String arg, String prefix) {
+        try {
+            int limit = Integer.parseInt(arg.substring(prefix.length()));
+            if (limit >= 0)
+                return limit;
+        } catch (NumberFormatException e) {
+            // Reported below, like negative limits.
+        }
+
+        throw new IllegalArgumentException("Invalid error limit in " + arg);
+    }
+
+    private static int size(String arg, String prefix) {
+        try {
+            int size = Integer.parseInt(arg.substring(prefix.length()));
+            if (size > 0)
+                return size;
+        } catch (NumberFormatException e) {
+            // Reported below, like sizes that are not positive.
+        }
+
+        throw new IllegalArgumentException("Invalid cache size in " + arg);
+    }
+
+    ErrorLimits errorLimits() {
+        return new ErrorLimits(maxErrors, maxPassErrors, suppressCascades);
+    }
+}
@@ -0,0 +1,272 @@
+package cool.compiler;
+
+import cool.structures.DiagnosticRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Diagnostics of past compilations, kept on disk under a hash of everything
+// they depend on: the build of the compiler, the options changing what gets
+// reported, and the name and contents of each input file, in order. A
+// compilation of inputs seen before, by any process sharing the directory,
+// gets its diagnostics back without being run.
+//
+// Entries are evicted least recently used first once they take more than the
+// given size. Their modification times record their use, so the order
+// survives the process.
+class DiagnosticsCache {
+    private static final String SUFFIX = ".diag";
+
+    // One instance per directory, shared by the compilations of a process.
+    private static final Map<Path, DiagnosticsCache> caches = new ConcurrentHashMap<>();
+
+    // Identifies the build of the compiler by a hash of its class files, so
+    // that no entry written by another build is ever used, whatever changed.
+    // Computed once, when a cache is first asked for; null if the classes
+    // cannot be read.
+    private static class CompilerVersion {
+        static final String HASH = hashClasses();
+    }
+
+    // What a compilation reported, and whether the program is correct.
+    static class Entry {
+        final boolean correct;
+        final String diagnostics;
+
+        Entry(boolean correct, String diagnostics) {
+            this.correct = correct;
+            this.diagnostics = diagnostics;
+        }
+    }
+
+    private final Path directory;
+    private long maxBytes;
+
+    // Sizes of the entries, least recently used first.
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private DiagnosticsCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+
+        var existing = new ArrayList<Path>();
+        try (var stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(existing::add);
+        }
+        existing.sort(Comparator.comparingLong(DiagnosticsCache::lastModified));
+
+        for (var path : existing) {
+            var key = path.getFileName().toString();
+            long size = path.toFile().length();
+            entries.put(key.substring(0, key.length() - SUFFIX.length()), size);
+            totalBytes += size;
+        }
+    }
+
+    // The cache in the given directory, if the options ask for one. Other
+    // output, such as profiles and parse statistics, is not kept, so
+    // compilations printing it are always run. Neither are those of a
+    // compiler whose build cannot be told apart from others.
+    static DiagnosticsCache forOptions(CompilerOptions options) throws IOException {
+        if (options.cacheDirectory == null || options.profile || options.parseStats)
+            return null;
+
+        if (CompilerVersion.HASH == null)
+            return null;
+
+        var directory = Path.of(options.cacheDirectory).toAbsolutePath().normalize();
+        DiagnosticsCache cache;
+        try {
+            cache = caches.computeIfAbsent(directory, key -> {
+                try {
+                    return new DiagnosticsCache(key, options.cacheSize);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        synchronized (cache) {
+            cache.maxBytes = options.cacheSize;
+        }
+        return cache;
+    }
+
+    // The contents are those of the input files, in order, as read for
+    // parsing them.
+    String key(CompilerOptions options, List<byte[]> contents) {
+        var digest = sha256();
+
+        // Parallelism and incremental mode do not change what is reported,
+        // nor its order, while legacy passes may report in another order.
+        update(digest, CompilerVersion.HASH);
+        update(digest, options.diagnosticRenderer == DiagnosticRenderer.JSON_LINES ? "json" : "text");
+        update(digest, options.maxErrors + " " + options.maxPassErrors + " " + options.suppressCascades
+                + " " + options.legacyPasses);
+
+        // Diagnostics only name files by their base names.
+        for (int i = 0; i < options.files.size(); i++) {
+            update(digest, new File(options.files.get(i)).getName());
+            update(digest, Integer.toString(contents.get(i).length));
+            digest.update(contents.get(i));
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Hashes the directory or archive the compiler's classes were loaded
+    // from. Classes in a directory are hashed in name order, along with their
+    // names.
+    private static String hashClasses() {
+        var digest = sha256();
+        try {
+            var codeSource = Compiler.class.getProtectionDomain().getCodeSource();
+            if (codeSource == null)
+                return null;
+
+            var location = Path.of(codeSource.getLocation().toURI());
+            if (Files.isDirectory(location)) {
+                List<Path> classes;
+                try (var files = Files.walk(location)) {
+                    classes = files.filter(file -> file.toString().endsWith(".class")).sorted().toList();
+                }
+
+                for (var file : classes) {
+                    update(digest, location.relativize(file).toString());
+                    digest.update(Files.readAllBytes(file));
+                }
+            } else {
+                digest.update(Files.readAllBytes(location));
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException | SecurityException e) {
+            return null;
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Each part ends with a separator, so that parts cannot run into one another.
+    private static void update(MessageDigest digest, String part) {
+        digest.update(part.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    // Entries written by other processes sharing the directory are found as
+    // well, as the file is looked for even when this process does not know
+    // of it.
+    Entry get(String key) {
+        var path = directory.resolve(key + SUFFIX);
+        String contents;
+        try {
+            contents = Files.readString(path, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Never written, or evicted by another process.
+            forget(key);
+            return null;
+        }
+
+        int newline = contents.indexOf('\n');
+        if (newline < 0) {
+            forget(key);
+            return null;
+        }
+
+        synchronized (this) {
+            // Marks the entry as the most recently used.
+            if (entries.get(key) == null) {
+                long size = contents.getBytes(StandardCharsets.UTF_8).length;
+                entries.put(key, size);
+                totalBytes += size;
+            }
+        }
+
+        return new Entry(contents.substring(0, newline).equals("correct"), contents.substring(newline + 1));
+    }
+
+    // Entries are written to a temporary file first, so that other processes
+    // never read one half written.
+    void put(String key, Entry entry) {
+        var contents = (entry.correct ? "correct" : "incorrect") + "\n" + entry.diagnostics;
+        var path = directory.resolve(key + SUFFIX);
+
+        long size;
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temporary, contents, StandardCharsets.UTF_8);
+            size = Files.size(temporary);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache only saves time; compilations do not depend on it.
+            try {
+                if (temporary != null)
+                    Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // Nothing else to do.
+            }
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            var previous = entries.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+
+            var iterator = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                var eldest = iterator.next();
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+
+        for (var eldest : evicted) {
+            try {
+                Files.deleteIfExists(directory.resolve(eldest + SUFFIX));
+            } catch (IOException e) {
+                // Found again, and evicted, the next time a process opens the
+                // directory.
+            }
+        }
+    }
+
+    private synchronized void forget(String key) {
+        var size = entries.remove(key);
+        if (size != null)
+            totalBytes -= size;
+    }
+
+    private static long lastModified(Path path) {
+        return path.toFile().lastModified();
+    }
+}
@@ -0,0 +1,100 @@
+package cool.compiler;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+
+// Parsed files of past compilations, kept by a long-running process such as
+// the compile server or the batch compiler. A file with the same contents as
+// one parsed before, wherever it is, gets its errors and AST back instead of
+// being parsed again.
+//
+// The passes annotate the AST, so an AST must not be used by two compilations
+// at the same time. A compilation takes the files it reuses out of the cache
+// and releases them once done. Contents may have several copies, one for each
+// compilation that found none free, up to one per worker, so concurrent
+// compilations sharing a file parse it at most once each rather than once per
+// program.
+//
+// Copies are evicted least recently used first once their sources take more
+// than the given size. ASTs take about ten times as much memory as their
+// source.
+class FileCache {
+    // Sources of 4 MB, for ASTs of about 40 MB.
+    static final long DEFAULT_MAX_BYTES = 4 << 20;
+
+    private final long maxBytes;
+    private final int maxCopies;
+
+    // Copies of each contents, least recently used first.
+    private final LinkedHashMap<FileFingerprint, ArrayDeque<ParsedFile>> files =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    FileCache(long maxBytes, int maxCopies) {
+        this.maxBytes = maxBytes;
+        this.maxCopies = maxCopies;
+    }
+
+    // Identifies the given contents, read from an input file.
+    static FileFingerprint fingerprint(byte[] contents) {
+        try {
+            return new FileFingerprint(contents.length, MessageDigest.getInstance("SHA-256").digest(contents));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Takes a copy of the outcome of parsing the given contents out of the
+    // cache, for the given file. Returns null if there is none, and the file
+    // is to be parsed.
+    synchronized ParsedFile take(String fileName, FileFingerprint fingerprint) {
+        var copies = files.get(fingerprint);
+        if (copies == null)
+            return null;
+
+        var parsedFile = copies.poll();
+        if (copies.isEmpty())
+            files.remove(fingerprint);
+        totalBytes -= fingerprint.size;
+
+        parsedFile.fileName = fileName;
+        parsedFile.reused = true;
+        return parsedFile;
+    }
+
+    // Makes the files of a finished compilation available to later ones.
+    // The symbols the compilation attached to their ASTs are cleared first,
+    // so that the files kept do not hold on to its symbol table.
+    void release(Iterable<ParsedFile> parsedFiles) {
+        for (var parsedFile : parsedFiles) {
+            if (parsedFile.ast != null)
+                parsedFile.ast.accept(new AnnotationResetVisitor());
+
+            parsedFile.reused = false;
+            add(parsedFile);
+        }
+    }
+
+    private synchronized void add(ParsedFile parsedFile) {
+        var fingerprint = parsedFile.fingerprint;
+        if (fingerprint.size > maxBytes)
+            return;
+
+        var copies = files.computeIfAbsent(fingerprint, key -> new ArrayDeque<>());
+        if (copies.size() >= maxCopies)
+            return;
+
+        copies.add(parsedFile);
+        totalBytes += fingerprint.size;
+
+        var iterator = files.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            totalBytes -= eldest.getKey().size * eldest.getValue().size();
+            iterator.remove();
+        }
+    }
+}
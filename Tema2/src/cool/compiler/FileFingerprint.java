@@ -0,0 +1,28 @@
+package cool.compiler;
+
+import java.util.Arrays;
+
+// Identifies the contents of a file by their size and hash, so that files
+// with the same contents are known to parse the same way, wherever they are.
+class FileFingerprint {
+    final long size;
+    final byte[] hash;
+
+    FileFingerprint(long size, byte[] hash) {
+        this.size = size;
+        this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof FileFingerprint other))
+            return false;
+
+        return size == other.size && Arrays.equals(hash, other.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(hash);
+    }
+}
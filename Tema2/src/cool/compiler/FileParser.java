@@ -0,0 +1,136 @@
+package cool.compiler;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import cool.lexer.*;
+import cool.parser.*;
+import cool.structures.Diagnostic;
+import cool.structures.SourcePositions;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lexes, parses and builds the AST of one input file at a time. The lexer,
+// token stream and parser are reused between calls, so an instance must not be
+// shared between threads; parallel parsing gives each worker its own instance.
+// Only the AST outlives a call: the parse tree, the tokens and the file's text
+// are released before it returns.
+class FileParser {
+    private CoolLexer lexer = null;
+    private CommonTokenStream tokenStream = null;
+    private CoolParser parser = null;
+
+    // Parses contents read from the given file, packing its source positions
+    // with the given id.
+    ParsedFile parse(String fileName, int fileId, CharStream input) {
+        return parse(fileName, fileId, input, Profiler.disabled());
+    }
+
+    // Lexing, parsing and building the AST are measured as separate phases,
+    // so all tokens are lexed before parsing starts.
+    ParsedFile parse(String fileName, int fileId, CharStream input, Profiler profiler) {
+        // Lexer
+        if (lexer == null)
+            lexer = new CoolLexer(input);
+        else
+            lexer.setInputStream(input);
+
+        // Token stream
+        if (tokenStream == null)
+            tokenStream = new CommonTokenStream(lexer);
+        else
+            tokenStream.setTokenSource(lexer);
+
+        profiler.measure("lex", fileName, tokenStream::fill);
+
+        /*
+        // Test lexer only.
+        tokenStream.fill();
+        List<Token> tokens = tokenStream.getTokens();
+        tokens.stream().forEach(token -> {
+            var text = token.getText();
+            var name = CoolLexer.VOCABULARY.getSymbolicName(token.getType());
+
+            System.out.println(text + " : " + name);
+            //System.out.println(token);
+        });
+        */
+
+        // Parser
+        if (parser == null)
+            parser = new CoolParser(tokenStream);
+        else
+            parser.setTokenStream(tokenStream);
+
+        var result = new ParsedFile(fileName, fileId);
+
+        // Customized error listener, for telling lexical errors apart and
+        // recording the file of each error. Errors are kept with the file
+        // instead of being reported right away, so that files parsed in
+        // parallel still report their errors grouped and in argument order.
+        var errorListener = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer,
+                                    Object offendingSymbol,
+                                    int line, int charPositionInLine,
+                                    String msg,
+                                    RecognitionException e) {
+                long position = SourcePositions.pack(fileId, line, charPositionInLine);
+
+                Token token = (Token)offendingSymbol;
+                if (token.getType() == CoolLexer.ERROR)
+                    result.errors.add(Diagnostic.at(position, Diagnostic.Code.LEXICAL, token.getText()));
+                else
+                    result.errors.add(Diagnostic.at(position, Diagnostic.Code.SYNTAX, msg));
+            }
+        };
+
+        var tree = profiler.measure("parse", fileName, () -> parseProgram(result, errorListener));
+
+        if (!result.hasErrors())
+            result.ast = profiler.measure("ast", fileName,
+                    () -> (Program) new ASTConstructionVisitor(fileId).visit(tree));
+
+        release();
+        return result;
+    }
+
+    private CoolParser.ProgramContext parseProgram(ParsedFile result, ANTLRErrorListener errorListener) {
+        CoolParser.ProgramContext tree;
+
+        // Actual parsing, in two stages. The first one uses the cheaper SLL
+        // prediction and gives up at the first error, without reporting it.
+        // Only if it fails is the input parsed again with full LL prediction
+        // and the usual error recovery, which also produces the messages.
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.removeErrorListeners();
+
+        try {
+            tree = parser.program();
+            result.predictionMode = PredictionMode.SLL;
+        } catch (ParseCancellationException e) {
+            // Rewinds the token stream as well.
+            parser.reset();
+
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.addErrorListener(errorListener);
+
+            tree = parser.program();
+            result.predictionMode = PredictionMode.LL;
+        }
+
+        return tree;
+    }
+
+    // Drops the tokens and text of the latest file, which the token stream
+    // and lexer would otherwise hold on to until the next one.
+    private void release() {
+        lexer.setInputStream(CharStreams.fromString(""));
+        tokenStream.setTokenSource(lexer);
+    }
+}
@@ -0,0 +1,39 @@
+package cool.compiler;
+
+import org.antlr.v4.runtime.atn.PredictionMode;
+
+import cool.structures.Diagnostic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of parsing a single file: the prediction mode that parsed it and the
+// lexical or syntax errors reported meanwhile. Files without errors also get
+// the AST of their classes.
+class ParsedFile {
+    // The file last parsed or reused with these contents. A cached copy is
+    // taken for any file with the same contents.
+    String fileName;
+
+    // The id the file's source positions are packed with. A compilation
+    // reusing the file claims it in its own SourceFiles.
+    final int fileId;
+
+    PredictionMode predictionMode;
+    final List<Diagnostic> errors = new ArrayList<>();
+    Program ast;
+
+    // Set when the outcome of parsing the file is kept in a FileCache, for
+    // later files with the same contents.
+    FileFingerprint fingerprint;
+    boolean reused = false;
+
+    ParsedFile(String fileName, int fileId) {
+        this.fileName = fileName;
+        this.fileId = fileId;
+    }
+
+    boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
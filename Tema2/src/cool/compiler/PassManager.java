@@ -0,0 +1,170 @@
+package cool.compiler;
+
+import cool.structures.CompilationContext;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Schedules the semantic passes into as few AST traversals as their
+// dependencies allow. A pass joins the traversal of the passes before it,
+// running right after them on each node, unless it needs one of them to
+// have finished on the whole program first. Either way, a pass only ever
+// reads what passes scheduled before it produced; schedules breaking this
+// are rejected.
+public class PassManager {
+    enum Pass {
+        DEFINITION(Set.of(), Set.of()),
+
+        // Connecting a node needs its own symbol and the names of all
+        // classes. The definition pass records the latter ahead of its
+        // traversal when the two are fused, so only the former remains.
+        CONNECTION(Set.of(DEFINITION), Set.of()),
+
+        // Overrides, inherited attributes and identifiers are checked against
+        // the signatures of other classes, which must all be connected.
+        VERIFICATION(Set.of(DEFINITION), Set.of(CONNECTION)),
+
+        // Typing a node needs its identifiers resolved, and the types of
+        // every symbol it may refer to.
+        TYPE(Set.of(VERIFICATION), Set.of(CONNECTION));
+
+        // Passes that must have processed a node before this one does.
+        final Set<Pass> nodeDependencies;
+
+        // Passes that must have processed the whole program beforehand.
+        final Set<Pass> programDependencies;
+
+        Pass(Set<Pass> nodeDependencies, Set<Pass> programDependencies) {
+            this.nodeDependencies = nodeDependencies;
+            this.programDependencies = programDependencies;
+        }
+    }
+
+    private final CompilationContext context;
+    private final List<List<Pass>> traversals;
+
+    // Type check classes in parallel.
+    private final boolean parallelTypes;
+
+    // Reuse the type checking errors of classes whose dependencies did not
+    // change. This only applies to fused passes.
+    private final boolean incremental;
+
+    // Legacy mode runs every pass in a traversal of its own, in the original
+    // order, which is useful for diffing diagnostics against fused runs.
+    public PassManager(CompilationContext context, boolean legacy, boolean parallelTypes, boolean incremental) {
+        this.context = context;
+        this.traversals = schedule(legacy);
+        this.parallelTypes = parallelTypes;
+        this.incremental = incremental;
+
+        // Fails right away, rather than after the first traversals ran.
+        traversals.forEach(this::visitorFor);
+    }
+
+    static List<List<Pass>> schedule(boolean legacy) {
+        var traversals = new ArrayList<List<Pass>>();
+
+        // Passes of the traversals before the current one, which have
+        // finished on the whole program by the time the current one runs.
+        var finished = EnumSet.noneOf(Pass.class);
+        List<Pass> current = null;
+
+        for (var pass : Pass.values()) {
+            // On each node, the passes of a traversal run in the order they
+            // joined it, so node dependencies are met by any pass scheduled
+            // so far. Program dependencies need the pass to be finished.
+            for (var dependency : pass.nodeDependencies)
+                if (!finished.contains(dependency) && (current == null || !current.contains(dependency)))
+                    throw new IllegalStateException(pass + " reads what " + dependency + " produces, "
+                            + "but is scheduled before it");
+
+            boolean fused = !legacy && current != null && current.stream().noneMatch(pass.programDependencies::contains);
+            if (!fused) {
+                if (current != null)
+                    finished.addAll(current);
+
+                current = new ArrayList<>();
+                traversals.add(current);
+            }
+
+            for (var dependency : pass.programDependencies)
+                if (!finished.contains(dependency))
+                    throw new IllegalStateException(pass + " needs " + dependency + " to have finished, "
+                            + "but is scheduled before it");
+
+            current.add(pass);
+        }
+
+        return traversals;
+    }
+
+    public void run(ASTNode ast) {
+        run(ast, Profiler.disabled());
+    }
+
+    // Each traversal is measured as a phase named after its passes.
+    void run(ASTNode ast, Profiler profiler) {
+        for (var traversal : traversals) {
+            var phase = traversal.stream()
+                    .map(pass -> pass.name().toLowerCase())
+                    .collect(Collectors.joining("+"));
+
+            context.startPass();
+            profiler.measure(phase, null, () -> ast.accept(visitorFor(traversal)));
+
+            // Later passes only build on what earlier ones completed, so none
+            // runs once a pass is cut short by the error limits.
+            if (context.isErrorLimitReached())
+                return;
+
+            // Parents never change once connected, so the inheritance graph
+            // is checked for cycles once and for all, and later passes get
+            // constant-time subtype checks.
+            if (traversal.contains(Pass.CONNECTION)) {
+                profiler.measure("class graph", null, context::analyzeClassGraph);
+                profiler.measure("hierarchy", null, context::freezeHierarchy);
+            }
+        }
+    }
+
+    // The classes of a program in the order the passes after the connection
+    // pass visit them: every class after its parent, then those in or below
+    // inheritance cycles, in source order.
+    static List<Class> classOrder(CompilationContext context, Program program) {
+        var classGraph = context.getClassGraph();
+        if (classGraph == null)
+            return program.classes;
+
+        return classGraph.inTopologicalOrder(program.classes, classs -> classs.symbol);
+    }
+
+    // Builds the visitor performing one traversal. The schedule decides which
+    // passes share a traversal; this only maps each group to the visitors
+    // implementing it. Fused passes are driven by one of their visitors,
+    // which calls into the other one node by node, in schedule order.
+    private ASTVisitor<?> visitorFor(List<Pass> traversal) {
+        if (traversal.equals(List.of(Pass.DEFINITION)))
+            return new DefinitionPassVisitor(context);
+
+        if (traversal.equals(List.of(Pass.CONNECTION)))
+            return new ConnectionPassVisitor(context);
+
+        if (traversal.equals(List.of(Pass.VERIFICATION)))
+            return new VerificationPassVisitor(context);
+
+        if (traversal.equals(List.of(Pass.TYPE)))
+            return new TypePassVisitor(context, null, parallelTypes, false);
+
+        if (traversal.equals(List.of(Pass.DEFINITION, Pass.CONNECTION)))
+            return new DefinitionPassVisitor(context, new ConnectionPassVisitor(context));
+
+        if (traversal.equals(List.of(Pass.VERIFICATION, Pass.TYPE)))
+            return new TypePassVisitor(context, new VerificationPassVisitor(context), parallelTypes, incremental);
+
+        throw new IllegalStateException("No visitor can run " + traversal + " in one traversal");
+    }
+}
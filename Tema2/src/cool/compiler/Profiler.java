@@ -0,0 +1,178 @@
+package cool.compiler;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// Wall time, CPU time and allocated bytes of the phases of a compilation:
+// lexing, parsing and AST construction of each file, then each traversal of
+// the semantic passes. CPU time and allocations are those of the thread
+// running a phase, so work it hands to other threads, such as parallel type
+// checking, only shows in its wall time. Phases are measured once per file
+// or traversal, and reading the counters is cheap, so profiling costs next
+// to nothing. A disabled profiler only runs the phases.
+class Profiler {
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    // Allocations are only counted by JVMs that extend the standard bean.
+    private static final com.sun.management.ThreadMXBean allocations =
+            threads instanceof com.sun.management.ThreadMXBean
+                    ? (com.sun.management.ThreadMXBean) threads : null;
+
+    private static class Measurement {
+        final String fileName;
+        final long wallNanos;
+        final long cpuNanos;
+        final long allocatedBytes;
+
+        Measurement(String fileName, long wallNanos, long cpuNanos, long allocatedBytes) {
+            this.fileName = fileName;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private final boolean enabled;
+
+    // Files are listed in argument order, even when parsed in parallel.
+    private final List<String> files;
+
+    // Measurements by phase, in the order the phases first ran.
+    private final Map<String, List<Measurement>> phases = new LinkedHashMap<>();
+
+    Profiler(boolean enabled, List<String> files) {
+        this.enabled = enabled;
+        this.files = files;
+    }
+
+    static Profiler disabled() {
+        return new Profiler(false, List.of());
+    }
+
+    void measure(String phase, String fileName, Runnable action) {
+        measure(phase, fileName, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Runs an action, recording what it took under the given phase, and the
+    // given file, if the phase works on one.
+    <T> T measure(String phase, String fileName, Supplier<T> action) {
+        if (!enabled)
+            return action.get();
+
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+        long wall = System.nanoTime();
+
+        T result = action.get();
+
+        wall = System.nanoTime() - wall;
+        cpu = cpu < 0 ? -1 : cpuTime() - cpu;
+        allocated = allocated < 0 ? -1 : allocatedBytes() - allocated;
+
+        synchronized (phases) {
+            phases.computeIfAbsent(phase, key -> new ArrayList<>())
+                    .add(new Measurement(fileName, wall, cpu, allocated));
+        }
+
+        return result;
+    }
+
+    private static long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return allocations != null && allocations.isThreadAllocatedMemorySupported()
+                ? allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    // Prints a table with a row per measurement and a total per phase, or
+    // the same as a single JSON object. Values that could not be measured
+    // are printed as -1.
+    void print(Consumer<String> sink, boolean json) {
+        if (!enabled)
+            return;
+
+        var rows = new StringBuilder();
+        if (json)
+            rows.append("{\"phases\":[");
+        else
+            rows.append(String.format("%-24s %-24s %10s %10s %12s", "Phase", "File", "Wall ms", "CPU ms", "Alloc KB"));
+
+        boolean first = true;
+        synchronized (phases) {
+            for (var phase : phases.entrySet()) {
+                var measurements = new ArrayList<>(phase.getValue());
+                measurements.sort(Comparator.comparingInt(measurement -> files.indexOf(measurement.fileName)));
+
+                for (var measurement : measurements) {
+                    if (json) {
+                        if (!first)
+                            rows.append(',');
+                        rows.append("{\"phase\":\"").append(phase.getKey()).append("\",\"file\":");
+                        if (measurement.fileName == null)
+                            rows.append("null");
+                        else
+                            rows.append('"').append(escape(measurement.fileName)).append('"');
+                        rows.append(",\"wallNanos\":").append(measurement.wallNanos)
+                                .append(",\"cpuNanos\":").append(measurement.cpuNanos)
+                                .append(",\"allocatedBytes\":").append(measurement.allocatedBytes).append('}');
+                    } else {
+                        var fileName = measurement.fileName == null ? "" : new File(measurement.fileName).getName();
+                        row(rows, phase.getKey(), fileName, measurement.wallNanos, measurement.cpuNanos,
+                                measurement.allocatedBytes);
+                    }
+                    first = false;
+                }
+
+                if (!json && measurements.size() > 1)
+                    row(rows, phase.getKey(), "(total)",
+                            total(measurements, measurement -> measurement.wallNanos),
+                            total(measurements, measurement -> measurement.cpuNanos),
+                            total(measurements, measurement -> measurement.allocatedBytes));
+            }
+        }
+
+        if (json)
+            rows.append("]}");
+
+        sink.accept(rows.toString());
+    }
+
+    private static void row(StringBuilder rows, String phase, String fileName, long wallNanos, long cpuNanos,
+                            long allocatedBytes) {
+        rows.append(System.lineSeparator()).append(String.format("%-24s %-24s %10.3f %10.3f %12d",
+                phase, fileName, wallNanos / 1e6, cpuNanos < 0 ? -1 : cpuNanos / 1e6,
+                allocatedBytes < 0 ? -1 : allocatedBytes / 1024));
+    }
+
+    // The sum of a value over measurements, or -1 if any of them lacks it.
+    private static long total(List<Measurement> measurements, ToLongFunction<Measurement> value) {
+        long total = 0;
+        for (var measurement : measurements) {
+            long current = value.applyAsLong(measurement);
+            if (current < 0)
+                return -1;
+            total += current;
+        }
+
+        return total;
+    }
+
+    // File names are the only free text in the report.
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
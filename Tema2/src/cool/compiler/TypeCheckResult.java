@@ -0,0 +1,41 @@
+package cool.compiler;
+
+import cool.structures.Diagnostic;
+import cool.structures.ErrorLimits;
+
+import java.util.List;
+import java.util.Map;
+
+// What type checking a class produced, kept on its AST node for as long as
+// the file it comes from does not change: its errors, along with the classes
+// it looked up and their fingerprints at that time, and the options it was
+// checked with.
+class TypeCheckResult {
+    final String classNames;
+    final ErrorLimits limits;
+    final Map<String, String> dependencies;
+    final List<Diagnostic> errors;
+
+    TypeCheckResult(String classNames, ErrorLimits limits, Map<String, String> dependencies,
+                    List<Diagnostic> errors) {
+        this.classNames = classNames;
+        this.limits = limits;
+        this.dependencies = dependencies;
+        this.errors = errors;
+    }
+
+    // Whether checking the class again would produce the same errors.
+    // Suppressing cascades changes which errors are found. The error limits
+    // only apply once the errors are reported, but are compared as well, so
+    // that no option a compilation is run with is ever ignored.
+    boolean isValid(ClassDependencies current, ErrorLimits currentLimits) {
+        if (!classNames.equals(current.classNames) || !limits.equals(currentLimits))
+            return false;
+
+        for (var dependency : dependencies.entrySet())
+            if (!dependency.getValue().equals(current.fingerprint(dependency.getKey())))
+                return false;
+
+        return true;
+    }
+}
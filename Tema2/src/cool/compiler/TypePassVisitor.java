@@ -1,409 +1,609 @@
-package cool.compiler;
-
-import cool.structures.*;
-
-import java.util.Map;
-
-public class TypePassVisitor implements ASTVisitor<ClassSymbol> {
-    private Scope currentScope;
-    private ClassSymbol dispatchClass;
-    private ClassSymbol returnTypeDispatchSelfType = null;
-
-    @Override
-    public ClassSymbol visit(Program program) {
-        currentScope = SymbolTable.globals;
-        program.classes.forEach(cls -> cls.accept(this));
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(Class classs) {
-        if (classs.symbol == null)
-            return null;
-
-        currentScope = classs.symbol;
-
-        classs.features.forEach(feature -> feature.accept(this));
-
-        currentScope = currentScope.getParent();
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(FuncFeature funcFeature) {
-        if (funcFeature.symbol == null)
-            return null;
-
-        currentScope = funcFeature.symbol;
-        funcFeature.formals.forEach(formal -> formal.accept(this));
-
-        ClassSymbol bodyType = funcFeature.e.accept(this);
-        if (bodyType != null) {
-            if (funcFeature.symbol.getType() == ClassSymbol.SELF_TYPE && bodyType == ClassSymbol.SELF_TYPE) {
-                currentScope = currentScope.getParent();
-                return null;
-            }
-
-            if (!ClassSymbol.isChildOf(ClassSymbol.translateClass(bodyType, currentScope, null), funcFeature.symbol.getType()))
-                SymbolTable.error(funcFeature.ctx, funcFeature.e.start, "Type " + bodyType.getName() + " of the body of method " + funcFeature.funcId.getText() + " is incompatible with declared return type " + funcFeature.funcType.getText());
-        }
-        currentScope = currentScope.getParent();
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(VarFeature varFeature) {
-        if (varFeature.symbol == null)
-            return null;
-
-        if (varFeature.e != null) {
-            ClassSymbol initType = varFeature.e.accept(this);
-            if (initType != null) {
-                if (!ClassSymbol.isChildOf(ClassSymbol.translateClass(initType, currentScope, null), ClassSymbol.translateClass(varFeature.symbol.getType(), currentScope, null)))
-                    SymbolTable.error(varFeature.ctx, varFeature.e.start, "Type " + initType.getName() + " of initialization expression of attribute " + varFeature.varId.getText() + " is incompatible with declared type " + varFeature.varType.getText());
-            }
-        }
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(Formal formal) {
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(ExplicitDispatch explicitDispatch) {
-        if (explicitDispatch.parentType != null && (explicitDispatch.parentType.getText().equals("SELF_TYPE") || explicitDispatch.parentSymbol == null))
-            return null;
-
-        dispatchClass = explicitDispatch.obj.accept(this);
-        if (dispatchClass == null)
-            return null;
-
-        returnTypeDispatchSelfType = dispatchClass;
-        dispatchClass = ClassSymbol.translateClass(dispatchClass, currentScope, null);
-
-        if (explicitDispatch.parentSymbol != null) {
-            if (!ClassSymbol.isChildOf(dispatchClass, explicitDispatch.parentSymbol)) {
-                SymbolTable.error(explicitDispatch.ctx, explicitDispatch.parentType, "Type " + explicitDispatch.parentSymbol.getName() + " of static dispatch is not a superclass of type " + dispatchClass.getName());
-                return null;
-            }
-            dispatchClass = explicitDispatch.parentSymbol;
-        }
-
-        return explicitDispatch.dispatch.accept(this);
-    }
-
-    @Override
-    public ClassSymbol visit(ImplicitDispatch implicitDispatch) {
-        if (!implicitDispatch.fromExplicit) {
-            Scope scope = currentScope;
-            while (!(scope instanceof ClassSymbol))
-                scope = scope.getParent();
-
-            dispatchClass = (ClassSymbol) scope;
-
-            returnTypeDispatchSelfType = ClassSymbol.SELF_TYPE;
-        }
-
-        FunctionSymbol functionSymbol = (FunctionSymbol) dispatchClass.lookupMethod(implicitDispatch.funcId.getText());
-        if (functionSymbol == null) {
-            SymbolTable.error(implicitDispatch.ctx, implicitDispatch.funcId, "Undefined method " + implicitDispatch.funcId.getText() + " in class " + dispatchClass.getName());
-            return null;
-        }
-
-        if (functionSymbol.getSymbols().size() != implicitDispatch.funcParams.size()) {
-            SymbolTable.error(implicitDispatch.ctx, implicitDispatch.funcId, "Method " + implicitDispatch.funcId.getText() + " of class " + dispatchClass.getName() + " is applied to wrong number of arguments");
-            return  null;
-        }
-
-        int i = 0;
-        for (Map.Entry<String, Symbol> entrySymbol : functionSymbol.getSymbols().entrySet()) {
-            ClassSymbol formalType = ((IdSymbol) entrySymbol.getValue()).getType();
-            ClassSymbol actualType = implicitDispatch.funcParams.get(i).accept(this);
-
-            if (actualType != null) {
-                if (!ClassSymbol.isChildOf(ClassSymbol.translateClass(actualType, currentScope, null), formalType))
-                    SymbolTable.error(implicitDispatch.ctx, implicitDispatch.funcParams.get(i).start, "In call to method " + functionSymbol.getName() + " of class " + dispatchClass.getName() + ", actual type " + actualType.getName() + " of formal parameter " + entrySymbol.getKey() + " is incompatible with declared type " + formalType.getName());
-            }
-
-            i++;
-        }
-        return ClassSymbol.translateClass(functionSymbol.getType(), currentScope, returnTypeDispatchSelfType);
-    }
-
-    @Override
-    public ClassSymbol visit(If iff) {
-        ClassSymbol condType = iff.cond.accept(this);
-        if (condType == null)
-            return null;
-
-        if (!condType.getName().equals("Bool"))
-            SymbolTable.error(iff.ctx, iff.cond.start, "If condition has type " + condType.getName() + " instead of Bool");
-
-        ClassSymbol thenBranchType = iff.thenBranch.accept(this);
-        ClassSymbol elseBranchType = iff.elseBranch.accept(this);
-
-        if (thenBranchType == ClassSymbol.SELF_TYPE && elseBranchType == ClassSymbol.SELF_TYPE)
-            return ClassSymbol.SELF_TYPE;
-        return ClassSymbol.leastCommonAncestor(ClassSymbol.translateClass(thenBranchType, currentScope, null), ClassSymbol.translateClass(elseBranchType, currentScope, null));
-    }
-
-    @Override
-    public ClassSymbol visit(While whilee) {
-        ClassSymbol condType = whilee.cond.accept(this);
-        if (condType == null)
-            return null;
-
-        if (!condType.getName().equals("Bool"))
-            SymbolTable.error(whilee.ctx, whilee.cond.start, "While condition has type " + condType.getName() + " instead of Bool");
-
-        whilee.content.accept(this);
-        return (ClassSymbol) SymbolTable.globals.lookup("Object");
-    }
-
-    @Override
-    public ClassSymbol visit(Block block) {
-        ClassSymbol returnType = null;
-        for (Expression expr : block.exprs)
-            returnType = expr.accept(this);
-
-        return returnType;
-    }
-
-    @Override
-    public ClassSymbol visit(Local local) {
-        if (local.symbol == null || local.symbol.getType() == null)
-            return null;
-
-        if (local.varExpr != null) {
-            ClassSymbol exprType = local.varExpr.accept(this);
-            if (exprType != null) {
-                if (!ClassSymbol.isChildOf(ClassSymbol.translateClass(exprType, currentScope, null), ClassSymbol.translateClass(local.symbol.getType(), currentScope, null)))
-                    SymbolTable.error(local.ctx, local.varExpr.start, "Type " + exprType.getName() + " of initialization expression of identifier " + local.varId.getText() + " is incompatible with declared type " + local.varType.getText());
-            }
-        }
-
-        currentScope = local.symbol;
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(Let let) {
-        Scope beforeLet = currentScope;
-
-        let.localList.forEach(local -> local.accept(this));
-        ClassSymbol returnType = let.letContent.accept(this);
-
-        currentScope = beforeLet;
-        return returnType;
-    }
-
-    @Override
-    public ClassSymbol visit(CaseBranch caseBranch) {
-        if (caseBranch.symbol == null)
-            return null;
-
-        currentScope = caseBranch.symbol;
-
-        ClassSymbol returnType = caseBranch.branchExpr.accept(this);
-
-        currentScope = currentScope.getParent();
-
-        return ClassSymbol.translateClass(returnType, currentScope, null);
-    }
-
-    @Override
-    public ClassSymbol visit(Case casee) {
-        casee.caseExpr.accept(this);
-
-        ClassSymbol returnType = casee.caseBranches.get(0).accept(this);
-        for (int i = 1; i < casee.caseBranches.size(); i++)
-            returnType = ClassSymbol.leastCommonAncestor(returnType, casee.caseBranches.get(i).accept(this));
-
-        return returnType;
-    }
-
-    @Override
-    public ClassSymbol visit(New neww) {
-        if (neww.symbol != null)
-            return neww.symbol;
-
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(Compl compl) {
-        ClassSymbol operandType = compl.e.accept(this);
-        if (operandType != null && !operandType.getName().equals("Int")) {
-            SymbolTable.error(compl.ctx, compl.e.start, "Operand of ~ has type " + operandType.getName() + " instead of Int");
-            return null;
-        }
-        return operandType;
-    }
-
-    @Override
-    public ClassSymbol visit(Isvoid isvoid) {
-        return (ClassSymbol) SymbolTable.globals.lookup("Bool");
-    }
-
-    @Override
-    public ClassSymbol visit(MultDiv multDiv) {
-        ClassSymbol leftType = multDiv.left.accept(this);
-        ClassSymbol rightType = multDiv.right.accept(this);
-
-        if (leftType != null && !leftType.getName().equals("Int")) {
-            SymbolTable.error(multDiv.ctx, multDiv.left.start, "Operand of " + multDiv.op.getText() + " has type " + leftType.getName() + " instead of Int");
-            return null;
-        }
-
-        if (rightType != null && !rightType.getName().equals("Int")) {
-            SymbolTable.error(multDiv.ctx, multDiv.right.start, "Operand of " + multDiv.op.getText() + " has type " + rightType.getName() + " instead of Int");
-            return null;
-        }
-
-        if (leftType != null && rightType != null)
-            return leftType;
-
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(PlusMinus plusMinus) {
-        ClassSymbol leftType = plusMinus.left.accept(this);
-        ClassSymbol rightType = plusMinus.right.accept(this);
-
-        if (leftType != null && !leftType.getName().equals("Int")) {
-            SymbolTable.error(plusMinus.ctx, plusMinus.left.start, "Operand of " + plusMinus.op.getText() + " has type " + leftType.getName() + " instead of Int");
-            return null;
-        }
-
-        if (rightType != null && !rightType.getName().equals("Int")) {
-            SymbolTable.error(plusMinus.ctx, plusMinus.right.start, "Operand of " + plusMinus.op.getText() + " has type " + rightType.getName() + " instead of Int");
-            return null;
-        }
-
-        if (leftType != null && rightType != null)
-            return leftType;
-
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(Relational relational) {
-        ClassSymbol leftType = relational.left.accept(this);
-        ClassSymbol rightType = relational.right.accept(this);
-
-        if (relational.op.getText().equals("<") || relational.op.getText().equals("<=")) {
-            if (leftType != null && !leftType.getName().equals("Int")) {
-                SymbolTable.error(relational.ctx, relational.left.start, "Operand of " + relational.op.getText() + " has type " + leftType.getName() + " instead of Int");
-                return null;
-            }
-
-            if (rightType != null && !rightType.getName().equals("Int")) {
-                SymbolTable.error(relational.ctx, relational.right.start, "Operand of " + relational.op.getText() + " has type " + rightType.getName() + " instead of Int");
-                return null;
-            }
-
-            if (leftType != null && rightType != null)
-                return (ClassSymbol) SymbolTable.globals.lookup("Bool");
-
-        } else {
-            if (leftType == null || rightType == null)
-                return null;
-
-            if (leftType.getName().equals("Int") && !rightType.getName().equals("Int")) {
-                SymbolTable.error(relational.ctx, relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
-                return null;
-            }
-
-            if (rightType.getName().equals("Int") && !leftType.getName().equals("Int")) {
-                SymbolTable.error(relational.ctx, relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
-                return null;
-            }
-
-            if (leftType.getName().equals("Bool") && !rightType.getName().equals("Bool")) {
-                SymbolTable.error(relational.ctx, relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
-                return null;
-            }
-
-            if (rightType.getName().equals("Bool") && !leftType.getName().equals("Bool")) {
-                SymbolTable.error(relational.ctx, relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
-                return null;
-            }
-
-            if (leftType.getName().equals("String") && !rightType.getName().equals("String")) {
-                SymbolTable.error(relational.ctx, relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
-                return null;
-            }
-
-            if (rightType.getName().equals("String") && !leftType.getName().equals("String")) {
-                SymbolTable.error(relational.ctx, relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
-                return null;
-            }
-
-            return (ClassSymbol) SymbolTable.globals.lookup("Bool");
-        }
-        return null;
-    }
-
-    @Override
-    public ClassSymbol visit(Not not) {
-        ClassSymbol operandType = not.e.accept(this);
-        if (operandType != null && !operandType.getName().equals("Bool")) {
-            SymbolTable.error(not.ctx, not.e.start, "Operand of not has type " + operandType.getName() + " instead of Bool");
-            return null;
-        }
-        return operandType;
-    }
-
-    @Override
-    public ClassSymbol visit(Assign assign) {
-        if (assign.symbol == null)
-            return null;
-
-        ClassSymbol initType = assign.e.accept(this);
-        if (initType != null) {
-            if (assign.symbol.getType() == ClassSymbol.SELF_TYPE && initType == ClassSymbol.SELF_TYPE)
-                return ClassSymbol.SELF_TYPE;
-
-            if (!ClassSymbol.isChildOf(ClassSymbol.translateClass(initType, currentScope, null), assign.symbol.getType())) {
-                SymbolTable.error(assign.ctx, assign.e.start, "Type " + initType.getName() + " of assigned expression is incompatible with declared type " + assign.symbol.getType() + " of identifier " + assign.varId.getText());
-                return null;
-            }
-        }
-
-        return initType;
-    }
-
-    @Override
-    public ClassSymbol visit(Paren paren) {
-        return paren.e.accept(this);
-    }
-
-    @Override
-    public ClassSymbol visit(Id id) {
-        if (id.varId.getText().equals("self"))
-            return ClassSymbol.SELF_TYPE;
-
-        if (id.symbol == null)
-            return null;
-
-        return id.symbol.getType();
-    }
-
-    @Override
-    public ClassSymbol visit(IntegerExpr integerExpr) {
-        return (ClassSymbol) SymbolTable.globals.lookup("Int");
-    }
-
-    @Override
-    public ClassSymbol visit(StringExpr stringExpr) {
-        return (ClassSymbol) SymbolTable.globals.lookup("String");
-    }
-
-    @Override
-    public ClassSymbol visit(BoolExpr boolExpr) {
-        return (ClassSymbol) SymbolTable.globals.lookup("Bool");
-    }
-}
+package cool.compiler;
+
+import cool.structures.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class TypePassVisitor implements ASTVisitor<ClassSymbol> {
+    private final CompilationContext context;
+    private Scope currentScope;
+
+    // Types are compared to the basic classes by reference.
+    private final ClassSymbol objectClass;
+    private final ClassSymbol intClass;
+    private final ClassSymbol stringClass;
+    private final ClassSymbol boolClass;
+    private ClassSymbol dispatchClass;
+    private ClassSymbol returnTypeDispatchSelfType = null;
+
+    // When present, the verification pass is fused into this traversal: it
+    // checks each node before the node is typed, and walks on its own the
+    // subtrees this pass gives up on, so that it reports the same errors as
+    // in a traversal of its own.
+    private final VerificationPassVisitor verifier;
+    private boolean verifying;
+
+    // Type checks classes concurrently, each with its own visitor.
+    private final boolean parallel;
+
+    // Keeps the errors of each class, and reuses them as long as nothing the
+    // class depends on changes.
+    private final boolean incremental;
+    private ClassDependencies classDependencies;
+
+    // Names of the classes whose signatures the class being checked depends
+    // on, recorded in incremental mode.
+    private Set<String> dependencies;
+
+    // Expressions with an error of their own have no type, like those whose
+    // subexpressions have none, so nothing is reported about them further up.
+    private final boolean suppressCascades;
+
+    public TypePassVisitor(CompilationContext context) {
+        this(context, null, false, false);
+    }
+
+    // Incremental mode relies on all the errors of a class being reported
+    // while checking it, so it needs the verification pass fused in.
+    public TypePassVisitor(CompilationContext context, VerificationPassVisitor verifier,
+                           boolean parallel, boolean incremental) {
+        this.context = context;
+        this.objectClass = context.getObjectClass();
+        this.intClass = context.getIntClass();
+        this.stringClass = context.getStringClass();
+        this.boolClass = context.getBoolClass();
+        this.verifier = verifier;
+        this.verifying = verifier != null;
+        this.parallel = parallel;
+        this.incremental = incremental && verifier != null;
+        this.suppressCascades = context.getErrorLimits().suppressesCascades();
+    }
+
+    @Override
+    public ClassSymbol visit(Program program) {
+        currentScope = context.getGlobals();
+
+        var classes = PassManager.classOrder(context, program);
+        if (!parallel && !incremental) {
+            classes.forEach(cls -> cls.accept(this));
+            return null;
+        }
+
+        if (incremental)
+            classDependencies = new ClassDependencies(context.getGlobals(), program);
+
+        // Once classes are connected, typing one only reads the symbols of
+        // the others, so classes are type checked on the common ForkJoinPool.
+        // The scope and dispatch state is per visitor, hence per class, and
+        // so is the fused verification pass. Errors are kept per class and
+        // printed in class order, as a sequential run would print them.
+        var stream = parallel ? classes.parallelStream() : classes.stream();
+        List<List<Diagnostic>> errors = stream
+                .map(this::check)
+                .collect(Collectors.toList());
+
+        errors.forEach(context::reportErrors);
+        return null;
+    }
+
+    // Type checks a class on its own, returning its errors. In incremental
+    // mode, the errors of the previous check are returned instead, as long as
+    // no class it depended on has changed since.
+    private List<Diagnostic> check(Class classs) {
+        var previous = classs.typeCheckResult;
+        if (incremental && classs.symbol != null && previous != null && previous.isValid(classDependencies, context.getErrorLimits()))
+            return previous.errors;
+
+        var visitor = forClass();
+        var errors = context.collectErrors(() -> classs.accept(visitor));
+
+        if (incremental && classs.symbol != null) {
+            var fingerprints = new HashMap<String, String>();
+            for (var className : visitor.dependencies)
+                fingerprints.put(className, classDependencies.fingerprint(className));
+
+            classs.typeCheckResult = new TypeCheckResult(classDependencies.classNames, context.getErrorLimits(),
+                    fingerprints, errors);
+        }
+
+        return errors;
+    }
+
+    // A visitor with fresh state, for type checking a single class.
+    private TypePassVisitor forClass() {
+        var visitor = new TypePassVisitor(context, verifier == null ? null : new VerificationPassVisitor(context), false, false);
+        if (incremental)
+            visitor.dependencies = new HashSet<>();
+
+        return visitor;
+    }
+
+    @Override
+    public ClassSymbol visit(Class classs) {
+        if (classs.symbol == null)
+            return null;
+
+        boolean wasVerifying = verifying;
+        if (verifying)
+            verifying = verifier.verify(classs);
+
+        // Attributes and methods are looked up along the class's own
+        // inheritance chain.
+        depend(classs.symbol);
+
+        currentScope = classs.symbol;
+
+        for (var feature : classs.features) {
+            if (context.isErrorLimitReached())
+                break;
+
+            feature.accept(this);
+        }
+
+        currentScope = currentScope.getParent();
+        verifying = wasVerifying;
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(FuncFeature funcFeature) {
+        if (funcFeature.symbol == null)
+            return null;
+
+        boolean wasVerifying = verifying;
+        if (verifying)
+            verifying = verifier.verify(funcFeature, (ClassSymbol) currentScope);
+
+        currentScope = funcFeature.symbol;
+        funcFeature.formals.forEach(formal -> formal.accept(this));
+
+        ClassSymbol bodyType = funcFeature.e.accept(this);
+        if (bodyType != null) {
+            if (funcFeature.symbol.getType() == ClassSymbol.SELF_TYPE && bodyType == ClassSymbol.SELF_TYPE) {
+                currentScope = currentScope.getParent();
+                verifying = wasVerifying;
+                return null;
+            }
+
+            if (!isChildOf(ClassSymbol.translateClass(bodyType, currentScope, null), funcFeature.symbol.getType()))
+                context.error(funcFeature.e.start, "Type " + bodyType.getName() + " of the body of method " + funcFeature.funcId.getText() + " is incompatible with declared return type " + funcFeature.funcType.getText());
+        }
+        currentScope = currentScope.getParent();
+        verifying = wasVerifying;
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(VarFeature varFeature) {
+        if (varFeature.symbol == null)
+            return null;
+
+        if (verifying)
+            verifier.verify(varFeature, (ClassSymbol) currentScope);
+
+        if (varFeature.e != null) {
+            ClassSymbol initType = varFeature.e.accept(this);
+            if (initType != null) {
+                if (!isChildOf(ClassSymbol.translateClass(initType, currentScope, null), ClassSymbol.translateClass(varFeature.symbol.getType(), currentScope, null)))
+                    context.error(varFeature.e.start, "Type " + initType.getName() + " of initialization expression of attribute " + varFeature.varId.getText() + " is incompatible with declared type " + varFeature.varType.getText());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(Formal formal) {
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(ExplicitDispatch explicitDispatch) {
+        if (explicitDispatch.parentType != null && (explicitDispatch.parentType.getText().equals("SELF_TYPE") || explicitDispatch.parentSymbol == null)) {
+            verifySkipped(explicitDispatch);
+            return null;
+        }
+
+        dispatchClass = explicitDispatch.obj.accept(this);
+        if (dispatchClass == null) {
+            verifySkipped(explicitDispatch.dispatch);
+            return null;
+        }
+
+        returnTypeDispatchSelfType = dispatchClass;
+        dispatchClass = ClassSymbol.translateClass(dispatchClass, currentScope, null);
+
+        if (explicitDispatch.parentSymbol != null) {
+            if (!isChildOf(dispatchClass, explicitDispatch.parentSymbol)) {
+                context.error(explicitDispatch.parentType, "Type " + explicitDispatch.parentSymbol.getName() + " of static dispatch is not a superclass of type " + dispatchClass.getName());
+                verifySkipped(explicitDispatch.dispatch);
+                return null;
+            }
+            dispatchClass = explicitDispatch.parentSymbol;
+        }
+
+        return explicitDispatch.dispatch.accept(this);
+    }
+
+    @Override
+    public ClassSymbol visit(ImplicitDispatch implicitDispatch) {
+        if (!implicitDispatch.fromExplicit) {
+            Scope scope = currentScope;
+            while (!(scope instanceof ClassSymbol))
+                scope = scope.getParent();
+
+            dispatchClass = (ClassSymbol) scope;
+
+            returnTypeDispatchSelfType = ClassSymbol.SELF_TYPE;
+        }
+
+        FunctionSymbol functionSymbol = lookupMethod(dispatchClass, implicitDispatch.funcId.getText());
+        if (functionSymbol == null) {
+            context.error(implicitDispatch.funcId, "Undefined method " + implicitDispatch.funcId.getText() + " in class " + dispatchClass.getName());
+            verifySkipped(implicitDispatch);
+            return null;
+        }
+
+        if (functionSymbol.getSymbols().size() != implicitDispatch.funcParams.size()) {
+            context.error(implicitDispatch.funcId, "Method " + implicitDispatch.funcId.getText() + " of class " + dispatchClass.getName() + " is applied to wrong number of arguments");
+            verifySkipped(implicitDispatch);
+            return  null;
+        }
+
+        boolean failed = false;
+        int i = 0;
+        for (Map.Entry<String, Symbol> entrySymbol : functionSymbol.getSymbols().entrySet()) {
+            ClassSymbol formalType = ((IdSymbol) entrySymbol.getValue()).getType();
+            ClassSymbol actualType = implicitDispatch.funcParams.get(i).accept(this);
+
+            if (actualType != null) {
+                if (!isChildOf(ClassSymbol.translateClass(actualType, currentScope, null), formalType)) {
+                    context.error(implicitDispatch.funcParams.get(i).start, "In call to method " + functionSymbol.getName() + " of class " + dispatchClass.getName() + ", actual type " + actualType.getName() + " of formal parameter " + entrySymbol.getKey() + " is incompatible with declared type " + formalType.getName());
+                    failed = true;
+                }
+            }
+
+            i++;
+        }
+
+        if (failed && suppressCascades)
+            return null;
+        return ClassSymbol.translateClass(functionSymbol.getType(), currentScope, returnTypeDispatchSelfType);
+    }
+
+    @Override
+    public ClassSymbol visit(If iff) {
+        ClassSymbol condType = iff.cond.accept(this);
+        if (condType == null) {
+            verifySkipped(iff.thenBranch);
+            verifySkipped(iff.elseBranch);
+            return null;
+        }
+
+        if (condType != boolClass) {
+            context.error(iff.cond.start, "If condition has type " + condType.getName() + " instead of Bool");
+
+            if (suppressCascades) {
+                verifySkipped(iff.thenBranch);
+                verifySkipped(iff.elseBranch);
+                return null;
+            }
+        }
+
+        ClassSymbol thenBranchType = iff.thenBranch.accept(this);
+        ClassSymbol elseBranchType = iff.elseBranch.accept(this);
+
+        if (thenBranchType == ClassSymbol.SELF_TYPE && elseBranchType == ClassSymbol.SELF_TYPE)
+            return ClassSymbol.SELF_TYPE;
+        return leastCommonAncestor(ClassSymbol.translateClass(thenBranchType, currentScope, null), ClassSymbol.translateClass(elseBranchType, currentScope, null));
+    }
+
+    @Override
+    public ClassSymbol visit(While whilee) {
+        ClassSymbol condType = whilee.cond.accept(this);
+        if (condType == null) {
+            verifySkipped(whilee.content);
+            return null;
+        }
+
+        if (condType != boolClass) {
+            context.error(whilee.cond.start, "While condition has type " + condType.getName() + " instead of Bool");
+
+            if (suppressCascades) {
+                verifySkipped(whilee.content);
+                return null;
+            }
+        }
+
+        whilee.content.accept(this);
+        return objectClass;
+    }
+
+    @Override
+    public ClassSymbol visit(Block block) {
+        ClassSymbol returnType = null;
+        for (Expression expr : block.exprs)
+            returnType = expr.accept(this);
+
+        return returnType;
+    }
+
+    @Override
+    public ClassSymbol visit(Local local) {
+        if (local.symbol == null)
+            return null;
+
+        if (local.symbol.getType() == null) {
+            verifySkipped(local.varExpr);
+        } else if (local.varExpr != null) {
+            ClassSymbol exprType = local.varExpr.accept(this);
+            if (exprType != null) {
+                if (!isChildOf(ClassSymbol.translateClass(exprType, currentScope, null), ClassSymbol.translateClass(local.symbol.getType(), currentScope, null)))
+                    context.error(local.varExpr.start, "Type " + exprType.getName() + " of initialization expression of identifier " + local.varId.getText() + " is incompatible with declared type " + local.varType.getText());
+            }
+        }
+
+        currentScope = local.symbol;
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(Let let) {
+        Scope beforeLet = currentScope;
+
+        let.localList.forEach(local -> local.accept(this));
+        ClassSymbol returnType = let.letContent.accept(this);
+
+        currentScope = beforeLet;
+        return returnType;
+    }
+
+    @Override
+    public ClassSymbol visit(CaseBranch caseBranch) {
+        if (caseBranch.symbol == null)
+            return null;
+
+        currentScope = caseBranch.symbol;
+
+        ClassSymbol returnType = caseBranch.branchExpr.accept(this);
+
+        currentScope = currentScope.getParent();
+
+        return ClassSymbol.translateClass(returnType, currentScope, null);
+    }
+
+    @Override
+    public ClassSymbol visit(Case casee) {
+        casee.caseExpr.accept(this);
+
+        ClassSymbol returnType = casee.caseBranches.get(0).accept(this);
+        for (int i = 1; i < casee.caseBranches.size(); i++)
+            returnType = leastCommonAncestor(returnType, casee.caseBranches.get(i).accept(this));
+
+        return returnType;
+    }
+
+    @Override
+    public ClassSymbol visit(New neww) {
+        if (neww.symbol != null)
+            return neww.symbol;
+
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(Compl compl) {
+        ClassSymbol operandType = compl.e.accept(this);
+        if (operandType != null && operandType != intClass) {
+            context.error(compl.e.start, "Operand of ~ has type " + operandType.getName() + " instead of Int");
+            return null;
+        }
+        return operandType;
+    }
+
+    @Override
+    public ClassSymbol visit(Isvoid isvoid) {
+        verifySkipped(isvoid.e);
+        return boolClass;
+    }
+
+    @Override
+    public ClassSymbol visit(MultDiv multDiv) {
+        ClassSymbol leftType = multDiv.left.accept(this);
+        ClassSymbol rightType = multDiv.right.accept(this);
+
+        if (leftType != null && leftType != intClass) {
+            context.error(multDiv.left.start, "Operand of " + multDiv.op.getText() + " has type " + leftType.getName() + " instead of Int");
+            return null;
+        }
+
+        if (rightType != null && rightType != intClass) {
+            context.error(multDiv.right.start, "Operand of " + multDiv.op.getText() + " has type " + rightType.getName() + " instead of Int");
+            return null;
+        }
+
+        if (leftType != null && rightType != null)
+            return leftType;
+
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(PlusMinus plusMinus) {
+        ClassSymbol leftType = plusMinus.left.accept(this);
+        ClassSymbol rightType = plusMinus.right.accept(this);
+
+        if (leftType != null && leftType != intClass) {
+            context.error(plusMinus.left.start, "Operand of " + plusMinus.op.getText() + " has type " + leftType.getName() + " instead of Int");
+            return null;
+        }
+
+        if (rightType != null && rightType != intClass) {
+            context.error(plusMinus.right.start, "Operand of " + plusMinus.op.getText() + " has type " + rightType.getName() + " instead of Int");
+            return null;
+        }
+
+        if (leftType != null && rightType != null)
+            return leftType;
+
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(Relational relational) {
+        ClassSymbol leftType = relational.left.accept(this);
+        ClassSymbol rightType = relational.right.accept(this);
+
+        if (relational.op.getText().equals("<") || relational.op.getText().equals("<=")) {
+            if (leftType != null && leftType != intClass) {
+                context.error(relational.left.start, "Operand of " + relational.op.getText() + " has type " + leftType.getName() + " instead of Int");
+                return null;
+            }
+
+            if (rightType != null && rightType != intClass) {
+                context.error(relational.right.start, "Operand of " + relational.op.getText() + " has type " + rightType.getName() + " instead of Int");
+                return null;
+            }
+
+            if (leftType != null && rightType != null)
+                return boolClass;
+
+        } else {
+            if (leftType == null || rightType == null)
+                return null;
+
+            if (leftType == intClass && rightType != intClass) {
+                context.error(relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
+                return null;
+            }
+
+            if (rightType == intClass && leftType != intClass) {
+                context.error(relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
+                return null;
+            }
+
+            if (leftType == boolClass && rightType != boolClass) {
+                context.error(relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
+                return null;
+            }
+
+            if (rightType == boolClass && leftType != boolClass) {
+                context.error(relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
+                return null;
+            }
+
+            if (leftType == stringClass && rightType != stringClass) {
+                context.error(relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
+                return null;
+            }
+
+            if (rightType == stringClass && leftType != stringClass) {
+                context.error(relational.op, "Cannot compare " + leftType.getName() + " with " + rightType.getName());
+                return null;
+            }
+
+            return boolClass;
+        }
+        return null;
+    }
+
+    @Override
+    public ClassSymbol visit(Not not) {
+        ClassSymbol operandType = not.e.accept(this);
+        if (operandType != null && operandType != boolClass) {
+            context.error(not.e.start, "Operand of not has type " + operandType.getName() + " instead of Bool");
+            return null;
+        }
+        return operandType;
+    }
+
+    @Override
+    public ClassSymbol visit(Assign assign) {
+        if (verifying)
+            verifier.resolve(assign, currentScope);
+
+        if (assign.symbol == null) {
+            verifySkipped(assign.e);
+            return null;
+        }
+
+        ClassSymbol initType = assign.e.accept(this);
+        if (initType != null) {
+            if (assign.symbol.getType() == ClassSymbol.SELF_TYPE && initType == ClassSymbol.SELF_TYPE)
+                return ClassSymbol.SELF_TYPE;
+
+            if (!isChildOf(ClassSymbol.translateClass(initType, currentScope, null), assign.symbol.getType())) {
+                context.error(assign.e.start, "Type " + initType.getName() + " of assigned expression is incompatible with declared type " + assign.symbol.getType() + " of identifier " + assign.varId.getText());
+                return null;
+            }
+        }
+
+        return initType;
+    }
+
+    @Override
+    public ClassSymbol visit(Paren paren) {
+        return paren.e.accept(this);
+    }
+
+    @Override
+    public ClassSymbol visit(Id id) {
+        if (verifying)
+            verifier.resolve(id, currentScope);
+
+        if (id.varId.getText().equals("self"))
+            return ClassSymbol.SELF_TYPE;
+
+        if (id.symbol == null)
+            return null;
+
+        return id.symbol.getType();
+    }
+
+    @Override
+    public ClassSymbol visit(IntegerExpr integerExpr) {
+        return intClass;
+    }
+
+    @Override
+    public ClassSymbol visit(StringExpr stringExpr) {
+        return stringClass;
+    }
+
+    @Override
+    public ClassSymbol visit(BoolExpr boolExpr) {
+        return boolClass;
+    }
+
+    // Hierarchy queries, recording the classes whose signatures they read.
+
+    private boolean isChildOf(ClassSymbol child, ClassSymbol parent) {
+        depend(child);
+        return ClassSymbol.isChildOf(child, parent);
+    }
+
+    private ClassSymbol leastCommonAncestor(ClassSymbol a, ClassSymbol b) {
+        depend(a);
+        depend(b);
+        return ClassSymbol.leastCommonAncestor(a, b);
+    }
+
+    private FunctionSymbol lookupMethod(ClassSymbol classSymbol, String name) {
+        depend(classSymbol);
+        return classSymbol.lookupMethod(name);
+    }
+
+    private void depend(ClassSymbol classSymbol) {
+        if (dependencies != null && classSymbol != null && classSymbol != ClassSymbol.SELF_TYPE)
+            dependencies.add(classSymbol.getName());
+    }
+
+    private void verifySkipped(ASTNode node) {
+        if (verifying && node != null)
+            verifier.verifySubtree(node, currentScope);
+    }
+}
@@ -0,0 +1,135 @@
+package cool.structures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// The inheritance graph of a compilation's classes, analyzed once they are
+// all connected. Tarjan's algorithm finds its strongly connected components
+// in a single linear traversal. As a class has at most one parent, the
+// components with more than one class, or with a class inheriting from
+// itself, are exactly the inheritance cycles. Components come out parents
+// first, which also gives a topological order of the classes outside cycles.
+public class ClassGraph {
+    private final Set<ClassSymbol> cycleMembers = new HashSet<>();
+    private final Set<ClassSymbol> belowCycles = new HashSet<>();
+
+    // Classes neither in nor below a cycle, each after its parent.
+    private final List<ClassSymbol> topologicalOrder = new ArrayList<>();
+    private final Map<ClassSymbol, Integer> topologicalIndices = new HashMap<>();
+
+    public ClassGraph(List<ClassSymbol> classes) {
+        var indices = new HashMap<ClassSymbol, Integer>();
+        var lowLinks = new HashMap<ClassSymbol, Integer>();
+        var stack = new ArrayDeque<ClassSymbol>();
+        var onStack = new HashSet<ClassSymbol>();
+        int counter = 0;
+
+        for (var start : classes) {
+            if (indices.containsKey(start))
+                continue;
+
+            // With a single parent per class, the recursion of the algorithm
+            // only ever descends along the inheritance chain, so it is
+            // replaced by walking the chain up to a class already visited.
+            var path = new ArrayList<ClassSymbol>();
+            for (var current = start; current != null && !indices.containsKey(current);
+                 current = current.getInheritedClass()) {
+                indices.put(current, counter);
+                lowLinks.put(current, counter);
+                counter++;
+
+                stack.push(current);
+                onStack.add(current);
+                path.add(current);
+            }
+
+            // Then the classes on the path are finished in the order the
+            // recursion would return from them, closest to the root first.
+            for (int i = path.size() - 1; i >= 0; i--) {
+                var classSymbol = path.get(i);
+                var parent = classSymbol.getInheritedClass();
+                if (parent != null && onStack.contains(parent))
+                    lowLinks.put(classSymbol, Math.min(lowLinks.get(classSymbol), lowLinks.get(parent)));
+
+                if (lowLinks.get(classSymbol).equals(indices.get(classSymbol)))
+                    finishComponent(classSymbol, stack, onStack);
+            }
+        }
+    }
+
+    // Pops the component rooted at the given class off the stack.
+    private void finishComponent(ClassSymbol root, ArrayDeque<ClassSymbol> stack, Set<ClassSymbol> onStack) {
+        var component = new ArrayList<ClassSymbol>();
+        ClassSymbol member;
+        do {
+            member = stack.pop();
+            onStack.remove(member);
+            component.add(member);
+        } while (member != root);
+
+        if (component.size() > 1 || root.getInheritedClass() == root) {
+            cycleMembers.addAll(component);
+            return;
+        }
+
+        // The parent's component is always finished first.
+        var parent = root.getInheritedClass();
+        if (parent != null && (cycleMembers.contains(parent) || belowCycles.contains(parent))) {
+            belowCycles.add(root);
+            return;
+        }
+
+        topologicalIndices.put(root, topologicalOrder.size());
+        topologicalOrder.add(root);
+    }
+
+    public boolean isInCycle(ClassSymbol classSymbol) {
+        return cycleMembers.contains(classSymbol);
+    }
+
+    // Classes inheriting, directly or not, from a class in a cycle, without
+    // being part of one themselves.
+    public boolean isBelowCycle(ClassSymbol classSymbol) {
+        return belowCycles.contains(classSymbol);
+    }
+
+    public List<ClassSymbol> getTopologicalOrder() {
+        return topologicalOrder;
+    }
+
+    /**
+     * Orders items of classes, such as their AST nodes, the way their classes
+     * are ordered topologically. Items of classes in or below a cycle, or of
+     * no class at all, come last, in their original order.
+     *
+     * @param classOf Gives the class of an item, or null.
+     */
+    public <T> List<T> inTopologicalOrder(List<T> items, Function<T, ClassSymbol> classOf) {
+        var slots = new ArrayList<T>(topologicalOrder.size());
+        for (int i = 0; i < topologicalOrder.size(); i++)
+            slots.add(null);
+
+        var rest = new ArrayList<T>();
+        for (var item : items) {
+            var index = topologicalIndices.get(classOf.apply(item));
+            if (index == null || slots.get(index) != null)
+                rest.add(item);
+            else
+                slots.set(index, item);
+        }
+
+        var ordered = new ArrayList<T>(items.size());
+        for (var item : slots)
+            if (item != null)
+                ordered.add(item);
+        ordered.addAll(rest);
+
+        return ordered;
+    }
+}
@@ -0,0 +1,145 @@
+package cool.structures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The inheritance tree of a compilation's classes, frozen once they are all
+// connected. Classes are numbered in the order a depth-first walk of the tree
+// enters and leaves them, so a class descends from another exactly when its
+// interval lies within the other's, which ClassSymbol.isChildOf checks in
+// constant time. Least common ancestors, the join types of if and case
+// expressions, are found in constant time as well. Classes get their method
+// tables as the walk reaches them, after their parents.
+//
+// Classes the walk never reaches, those in or below an inheritance cycle, stay
+// unnumbered, as does SELF_TYPE. Subtype checks involving them walk the
+// inheritance chain instead.
+public class ClassHierarchy {
+    private final List<ClassSymbol> roots = new ArrayList<>();
+    private final Map<ClassSymbol, List<ClassSymbol>> children = new HashMap<>();
+
+    // Euler tour of the forest, with the depth of each entry.
+    private final List<ClassSymbol> tour = new ArrayList<>();
+    private final List<Integer> tourDepths = new ArrayList<>();
+    private int[] depths;
+    private int[][] minima;
+
+    public ClassHierarchy(List<ClassSymbol> classes) {
+        for (var classSymbol : classes) {
+            var parent = classSymbol.getInheritedClass();
+
+            // Classes whose parent is undefined are roots as well as Object.
+            if (parent == null)
+                roots.add(classSymbol);
+            else
+                children.computeIfAbsent(parent, key -> new ArrayList<>()).add(classSymbol);
+        }
+
+        number();
+    }
+
+    // Walks the tree without recursion, as generated hierarchies may be deep.
+    // The walk also records its Euler tour: every class, each time the walk
+    // gets to it, along with its depth. The shallowest class on the tour
+    // between two classes is their least common ancestor.
+    private void number() {
+        int counter = 0;
+        var stack = new ArrayDeque<ClassSymbol>();
+        var nextChild = new HashMap<ClassSymbol, Integer>();
+
+        for (var root : roots) {
+            // Trees are separated by an entry shallower than any class, so
+            // that classes of different trees have no common ancestor.
+            if (!tour.isEmpty())
+                visitTour(null, -1);
+
+            root.setHierarchyPosition(this, counter++, -1, tour.size());
+            root.buildMethodTable();
+            visitTour(root, 0);
+            stack.push(root);
+
+            while (!stack.isEmpty()) {
+                var current = stack.peek();
+                var currentChildren = children.getOrDefault(current, List.of());
+                int next = nextChild.getOrDefault(current, 0);
+
+                if (next < currentChildren.size()) {
+                    nextChild.put(current, next + 1);
+
+                    var child = currentChildren.get(next);
+                    child.setHierarchyPosition(this, counter++, -1, tour.size());
+                    child.buildMethodTable();
+                    visitTour(child, stack.size());
+                    stack.push(child);
+                } else {
+                    current.setHierarchyPosition(this, current.getHierarchyEnter(), counter++, current.getTourIndex());
+                    stack.pop();
+
+                    if (!stack.isEmpty())
+                        visitTour(stack.peek(), stack.size() - 1);
+                }
+            }
+        }
+
+        buildSparseTable();
+    }
+
+    private void visitTour(ClassSymbol classSymbol, int depth) {
+        tour.add(classSymbol);
+        tourDepths.add(depth);
+    }
+
+    // minima[k][i] is the position of the shallowest entry among the 2^k
+    // tour entries starting at i, so any range is covered by two of them.
+    private void buildSparseTable() {
+        int size = tour.size();
+
+        depths = new int[size];
+        for (int i = 0; i < size; i++)
+            depths[i] = tourDepths.get(i);
+        tourDepths.clear();
+
+        int levels = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1));
+        minima = new int[levels][];
+
+        minima[0] = new int[size];
+        for (int i = 0; i < size; i++)
+            minima[0][i] = i;
+
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            minima[k] = new int[size - (1 << k) + 1];
+            for (int i = 0; i < minima[k].length; i++)
+                minima[k][i] = shallower(minima[k - 1][i], minima[k - 1][i + half]);
+        }
+    }
+
+    private int shallower(int i, int j) {
+        return depths[i] <= depths[j] ? i : j;
+    }
+
+    // Answers in constant time, for classes numbered by this hierarchy.
+    public ClassSymbol leastCommonAncestor(ClassSymbol a, ClassSymbol b) {
+        int i = a.getTourIndex();
+        int j = b.getTourIndex();
+        if (i > j) {
+            int aux = i;
+            i = j;
+            j = aux;
+        }
+
+        int k = 31 - Integer.numberOfLeadingZeros(j - i + 1);
+        return tour.get(shallower(minima[k][i], minima[k][j - (1 << k) + 1]));
+    }
+
+    public List<ClassSymbol> getRoots() {
+        return roots;
+    }
+
+    public List<ClassSymbol> getChildren(ClassSymbol classSymbol) {
+        return children.getOrDefault(classSymbol, List.of());
+    }
+}
@@ -1,183 +1,330 @@
-package cool.structures;
-
-import java.util.LinkedHashMap;
-import java.util.Map;
-
-public class ClassSymbol extends Symbol implements Scope {
-    private Scope parent;
-    private Map<String, IdSymbol> attributes = new LinkedHashMap<>();
-    private Map<String, FunctionSymbol> methods = new LinkedHashMap<>();
-
-    private ClassSymbol inheritedClass;
-
-    public static final String[] illegalParents = {"Int", "String", "Bool", "SELF_TYPE"};
-    public static final ClassSymbol SELF_TYPE = new ClassSymbol("SELF_TYPE", null, null);
-
-    public ClassSymbol(String name, Scope parent, ClassSymbol inheritedClass) {
-        super(name);
-        this.parent = parent;
-        this.inheritedClass = inheritedClass;
-    }
-
-    @Override
-    public Scope getParent() {
-        return parent;
-    }
-
-    @Override
-    public boolean add(Symbol sym) {
-        if (sym instanceof FunctionSymbol)
-            return addMethod((FunctionSymbol) sym);
-
-        if (sym instanceof IdSymbol)
-            return addAttribute((IdSymbol) sym);
-
-        return false;
-    }
-
-    public boolean hasAttribute(IdSymbol sym) {
-        if (attributes.containsKey(sym.getName()))
-            return true;
-
-        return inheritedClass != null && inheritedClass.hasAttribute(sym);
-    }
-
-    public boolean addAttribute(IdSymbol sym) {
-        if (hasAttribute(sym))
-            return false;
-
-        attributes.put(sym.getName(), sym);
-
-        return true;
-    }
-
-    public boolean hasMethod(FunctionSymbol sym) {
-        if (methods.containsKey(sym.getName()))
-            return true;
-
-        return inheritedClass != null && inheritedClass.hasMethod(sym);
-    }
-
-    public boolean addMethod(FunctionSymbol sym) {
-        if (hasMethod(sym))
-            return false;
-
-        methods.put(sym.getName(), sym);
-
-        return true;
-    }
-
-    @Override
-    public Symbol lookup(String str) {
-        char type = str.charAt(0);
-        if (type == '1')
-            return lookupAttribute(str.substring(1));
-
-        if (type == '2')
-            return lookupMethod(str.substring(1));
-
-        if (parent != null)
-            return parent.lookup(str.substring(1));
-
-        return null;
-    }
-
-    public Symbol lookupAttribute(String str) {
-        var sym = attributes.get(str);
-
-        if (sym != null)
-            return sym;
-
-        if (inheritedClass != null) {
-            var inhSym = inheritedClass.lookup("1" + str);
-            if (inhSym != null)
-                return inhSym;
-        }
-
-        if (parent != null)
-            return parent.lookup(str);
-
-        return null;
-    }
-
-    public Symbol lookupMethod(String str) {
-        var sym = methods.get(str);
-
-        if (sym != null)
-            return sym;
-
-        if (inheritedClass != null) {
-            var inhSym = inheritedClass.lookup("2" + str);
-            if (inhSym != null)
-                return inhSym;
-        }
-
-        if (parent != null)
-            return parent.lookup(str);
-
-        return null;
-    }
-
-    public static boolean isChildOf(ClassSymbol child, ClassSymbol parent) {
-        if (parent == null)
-            return false;
-
-        ClassSymbol currentClass = child;
-        while (currentClass != null) {
-            if (currentClass.getName().equals(parent.getName()))
-                return true;
-
-            currentClass = currentClass.getInheritedClass();
-        }
-
-        return false;
-    }
-
-    public static ClassSymbol leastCommonAncestor(ClassSymbol a, ClassSymbol b) {
-        if (a == null || b == null)
-            return null;
-
-        ClassSymbol currentClass = a;
-        while (currentClass != null) {
-            if (ClassSymbol.isChildOf(b, currentClass))
-                return currentClass;
-
-            currentClass = currentClass.getInheritedClass();
-        }
-
-        return null;
-    }
-
-    public static ClassSymbol translateClass(ClassSymbol a, Scope currentScope, ClassSymbol dispatchClass) {
-        if (a == ClassSymbol.SELF_TYPE) {
-            if (dispatchClass != null)
-                return dispatchClass;
-
-            while (currentScope != null && !(currentScope instanceof ClassSymbol))
-                currentScope = currentScope.getParent();
-
-            if (currentScope != null)
-                return (ClassSymbol) currentScope;
-
-            return null;
-        }
-
-        return a;
-    }
-
-    public Map<String, IdSymbol> getAttributes() {
-        return attributes;
-    }
-
-    public Map<String, FunctionSymbol> getMethods() {
-        return methods;
-    }
-
-    public ClassSymbol getInheritedClass() {
-        return inheritedClass;
-    }
-
-    public void setInheritedClass(ClassSymbol inheritedClass) {
-        this.inheritedClass = inheritedClass;
-    }
-}
+package cool.structures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ClassSymbol extends Symbol implements Scope {
+    private Scope parent;
+    private Map<String, IdSymbol> attributes = new LinkedHashMap<>();
+    private Map<String, FunctionSymbol> methods = new LinkedHashMap<>();
+
+    private ClassSymbol inheritedClass;
+
+    // Position in the frozen class hierarchy, -1 while not numbered.
+    private ClassHierarchy hierarchy;
+    private int hierarchyEnter = -1;
+    private int hierarchyExit = -1;
+    private int tourIndex = -1;
+
+    // Every method the class responds to, own or inherited, built along with
+    // the hierarchy. Inherited methods keep the slot they have in the parent,
+    // overriding ones take the slot of the method they override and new ones
+    // are appended. Both are immutable once built.
+    private List<FunctionSymbol> methodTable;
+    private Map<String, Integer> methodSlots;
+
+    // Walks a class and its ancestors, closest first, for classes that are
+    // not numbered. Classes in or below an inheritance cycle have a chain
+    // that never ends, so the walk stops once it gets back to a class it
+    // already passed. Brent's algorithm finds that class without remembering
+    // every class on the way: a mark is moved ahead to the current class
+    // after 1, 2, 4, ... steps, and the walk is done when it reaches the mark
+    // again, having gone once around the cycle.
+    private static final class Ancestors {
+        private ClassSymbol current;
+        private ClassSymbol mark;
+        private int steps = 0;
+        private int power = 1;
+
+        Ancestors(ClassSymbol start) {
+            current = start;
+            mark = start;
+        }
+
+        // The next class of the chain, or null past its end.
+        ClassSymbol next() {
+            var result = current;
+            if (result == null)
+                return null;
+
+            current = result.inheritedClass;
+            if (current == mark) {
+                current = null;
+            } else if (++steps == power) {
+                mark = current;
+                steps = 0;
+                power *= 2;
+            }
+
+            return result;
+        }
+    }
+
+    public static final String[] illegalParents = {"Int", "String", "Bool", "SELF_TYPE"};
+    public static final ClassSymbol SELF_TYPE = new ClassSymbol("SELF_TYPE", null, null);
+
+    public ClassSymbol(String name, Scope parent, ClassSymbol inheritedClass) {
+        super(name);
+        this.parent = parent;
+        this.inheritedClass = inheritedClass;
+    }
+
+    @Override
+    public Scope getParent() {
+        return parent;
+    }
+
+    @Override
+    public boolean add(Symbol sym) {
+        if (sym instanceof FunctionSymbol)
+            return addMethod((FunctionSymbol) sym);
+
+        if (sym instanceof IdSymbol)
+            return addAttribute((IdSymbol) sym);
+
+        return false;
+    }
+
+    public boolean hasAttribute(IdSymbol sym) {
+        if (isNumbered()) {
+            for (var currentClass = this; currentClass != null; currentClass = currentClass.inheritedClass)
+                if (currentClass.attributes.containsKey(sym.getName()))
+                    return true;
+
+            return false;
+        }
+
+        var ancestors = new Ancestors(this);
+        for (var currentClass = ancestors.next(); currentClass != null; currentClass = ancestors.next())
+            if (currentClass.attributes.containsKey(sym.getName()))
+                return true;
+
+        return false;
+    }
+
+    public boolean addAttribute(IdSymbol sym) {
+        // Only attributes of this very class clash; redefining an inherited
+        // one is reported separately, once the hierarchy is known.
+        if (attributes.containsKey(sym.getName()))
+            return false;
+
+        attributes.put(sym.getName(), sym);
+
+        return true;
+    }
+
+    public boolean hasMethod(FunctionSymbol sym) {
+        if (methodTable != null)
+            return methodSlots.containsKey(sym.getName());
+
+        var ancestors = new Ancestors(this);
+        for (var currentClass = ancestors.next(); currentClass != null; currentClass = ancestors.next())
+            if (currentClass.methods.containsKey(sym.getName()))
+                return true;
+
+        return false;
+    }
+
+    public boolean addMethod(FunctionSymbol sym) {
+        // Methods of ancestors are overridden, not redefined.
+        if (methods.containsKey(sym.getName()))
+            return false;
+
+        methods.put(sym.getName(), sym);
+
+        return true;
+    }
+
+    @Override
+    public Symbol lookup(Namespace namespace, String name) {
+        switch (namespace) {
+            case ATTRIBUTE:
+            case LOCAL:
+                // Identifiers not bound by an inner scope are attributes.
+                return lookupAttribute(name);
+
+            case METHOD:
+                return lookupMethod(name);
+
+            default:
+                if (parent != null)
+                    return parent.lookup(namespace, name);
+
+                return null;
+        }
+    }
+
+    // Reached for every identifier not bound by an inner scope, so numbered
+    // classes, which are known not to be in or below an inheritance cycle,
+    // walk their chain as is rather than allocate a guarded walk.
+    public IdSymbol lookupAttribute(String name) {
+        if (isNumbered()) {
+            for (var currentClass = this; currentClass != null; currentClass = currentClass.inheritedClass) {
+                var sym = currentClass.attributes.get(name);
+                if (sym != null)
+                    return sym;
+            }
+
+            return null;
+        }
+
+        var ancestors = new Ancestors(this);
+        for (var currentClass = ancestors.next(); currentClass != null; currentClass = ancestors.next()) {
+            var sym = currentClass.attributes.get(name);
+            if (sym != null)
+                return sym;
+        }
+
+        return null;
+    }
+
+    public FunctionSymbol lookupMethod(String name) {
+        if (methodTable != null) {
+            var slot = methodSlots.get(name);
+            return slot == null ? null : methodTable.get(slot);
+        }
+
+        var ancestors = new Ancestors(this);
+        for (var currentClass = ancestors.next(); currentClass != null; currentClass = ancestors.next()) {
+            var sym = currentClass.methods.get(name);
+            if (sym != null)
+                return sym;
+        }
+
+        return null;
+    }
+
+    public static boolean isChildOf(ClassSymbol child, ClassSymbol parent) {
+        if (parent == null)
+            return false;
+
+        // Intervals are only comparable within the hierarchy that numbered
+        // them.
+        if (child != null && child.isNumbered() && parent.isNumbered() && child.hierarchy == parent.hierarchy)
+            return parent.hierarchyEnter <= child.hierarchyEnter && child.hierarchyExit <= parent.hierarchyExit;
+
+        var ancestors = new Ancestors(child);
+        for (var currentClass = ancestors.next(); currentClass != null; currentClass = ancestors.next())
+            if (currentClass.getName().equals(parent.getName()))
+                return true;
+
+        return false;
+    }
+
+    public static ClassSymbol leastCommonAncestor(ClassSymbol a, ClassSymbol b) {
+        if (a == null || b == null)
+            return null;
+
+        if (a.isNumbered() && b.isNumbered() && a.hierarchy == b.hierarchy)
+            return a.hierarchy.leastCommonAncestor(a, b);
+
+        var ancestors = new Ancestors(a);
+        for (var currentClass = ancestors.next(); currentClass != null; currentClass = ancestors.next())
+            if (ClassSymbol.isChildOf(b, currentClass))
+                return currentClass;
+
+        return null;
+    }
+
+    public static ClassSymbol translateClass(ClassSymbol a, Scope currentScope, ClassSymbol dispatchClass) {
+        if (a == ClassSymbol.SELF_TYPE) {
+            if (dispatchClass != null)
+                return dispatchClass;
+
+            while (currentScope != null && !(currentScope instanceof ClassSymbol))
+                currentScope = currentScope.getParent();
+
+            if (currentScope != null)
+                return (ClassSymbol) currentScope;
+
+            return null;
+        }
+
+        return a;
+    }
+
+    public Map<String, IdSymbol> getAttributes() {
+        return attributes;
+    }
+
+    public Map<String, FunctionSymbol> getMethods() {
+        return methods;
+    }
+
+    public ClassSymbol getInheritedClass() {
+        return inheritedClass;
+    }
+
+    public void setInheritedClass(ClassSymbol inheritedClass) {
+        this.inheritedClass = inheritedClass;
+    }
+
+    public boolean isNumbered() {
+        return hierarchyExit >= 0;
+    }
+
+    public int getHierarchyEnter() {
+        return hierarchyEnter;
+    }
+
+    public int getHierarchyExit() {
+        return hierarchyExit;
+    }
+
+    int getTourIndex() {
+        return tourIndex;
+    }
+
+    public List<FunctionSymbol> getMethodTable() {
+        return methodTable;
+    }
+
+    // The slot of the given method in the method table, or -1 if the class
+    // has no such method or no table.
+    public int getMethodSlot(String name) {
+        if (methodSlots == null)
+            return -1;
+
+        var slot = methodSlots.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    // Requires the parent's table to be built already.
+    void buildMethodTable() {
+        var table = new ArrayList<FunctionSymbol>();
+        var slots = Map.<String, Integer>of();
+        if (inheritedClass != null && inheritedClass.methodTable != null) {
+            table.addAll(inheritedClass.methodTable);
+            slots = inheritedClass.methodSlots;
+        }
+
+        // Classes that only override methods share their parent's slots.
+        Map<String, Integer> ownSlots = null;
+        for (var method : methods.values()) {
+            var slot = slots.get(method.getName());
+            if (slot != null) {
+                table.set(slot, method);
+                continue;
+            }
+
+            if (ownSlots == null)
+                ownSlots = new HashMap<>(slots);
+            ownSlots.put(method.getName(), table.size());
+            table.add(method);
+        }
+
+        methodTable = Collections.unmodifiableList(table);
+        methodSlots = ownSlots == null ? slots : Collections.unmodifiableMap(ownSlots);
+    }
+
+    void setHierarchyPosition(ClassHierarchy hierarchy, int enter, int exit, int tourIndex) {
+        this.hierarchy = hierarchy;
+        this.hierarchyEnter = enter;
+        this.hierarchyExit = exit;
+        this.tourIndex = tourIndex;
+    }
+}
@@ -0,0 +1,223 @@
+package cool.structures;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// State of a single compilation: the global scope, the input files and where
+// error messages go. Compilations with different contexts
+// do not share anything, so several of them may run in the same JVM, even
+// at the same time.
+public class CompilationContext {
+    private final DefaultScope globals = SymbolTable.defineBasicClasses();
+
+    // The basic classes, resolved once so that types can be compared to
+    // them by reference.
+    private final ClassSymbol objectClass = basicClass("Object");
+    private final ClassSymbol ioClass = basicClass("IO");
+    private final ClassSymbol intClass = basicClass("Int");
+    private final ClassSymbol stringClass = basicClass("String");
+    private final ClassSymbol boolClass = basicClass("Bool");
+
+    // Built once the classes are connected.
+    private ClassGraph classGraph;
+    private ClassHierarchy hierarchy;
+
+    // The input files, by the ids source positions refer to them by.
+    private final SourceFiles files = new SourceFiles();
+
+    private final Diagnostics diagnostics;
+
+    // Semantic errors reported so far, in total and in the current pass.
+    // Once either limit is reached, further errors are dropped and the
+    // passes stop walking the AST.
+    private final ErrorLimits limits;
+    private int errorCount = 0;
+    private int passErrorCount = 0;
+    private volatile boolean errorLimitReached = false;
+
+    // Set from any thread that reports an error.
+    private volatile boolean semanticErrors = false;
+
+    // Errors reported by a thread while it is collecting them, instead of
+    // adding them to the diagnostics right away.
+    private final ThreadLocal<List<Diagnostic>> collectedErrors = new ThreadLocal<>();
+
+    public CompilationContext(Diagnostics diagnostics, ErrorLimits limits) {
+        this.diagnostics = diagnostics;
+        this.limits = limits;
+    }
+
+    public Scope getGlobals() {
+        return globals;
+    }
+
+    private ClassSymbol basicClass(String name) {
+        return (ClassSymbol) globals.lookup(Namespace.CLASS, name);
+    }
+
+    public ClassSymbol getObjectClass() {
+        return objectClass;
+    }
+
+    public ClassSymbol getIOClass() {
+        return ioClass;
+    }
+
+    public ClassSymbol getIntClass() {
+        return intClass;
+    }
+
+    public ClassSymbol getStringClass() {
+        return stringClass;
+    }
+
+    public ClassSymbol getBoolClass() {
+        return boolClass;
+    }
+
+    // Finds the inheritance cycles among the classes defined so far, and
+    // their topological order. Their parents must not change afterwards.
+    public void analyzeClassGraph() {
+        classGraph = new ClassGraph(definedClasses());
+    }
+
+    public ClassGraph getClassGraph() {
+        return classGraph;
+    }
+
+    // Numbers the classes defined so far for constant-time subtype checks.
+    // Their parents must not change afterwards.
+    public void freezeHierarchy() {
+        hierarchy = new ClassHierarchy(definedClasses());
+    }
+
+    private List<ClassSymbol> definedClasses() {
+        var classes = new ArrayList<ClassSymbol>();
+        for (var symbol : globals.getSymbols())
+            if (symbol instanceof ClassSymbol)
+                classes.add((ClassSymbol) symbol);
+
+        return classes;
+    }
+
+    public ClassHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    public SourceFiles getFiles() {
+        return files;
+    }
+
+    public ErrorLimits getErrorLimits() {
+        return limits;
+    }
+
+    /**
+     * Reports a diagnostic other than a semantic error, such as a syntax
+     * error.
+     */
+    public void report(Diagnostic diagnostic) {
+        diagnostics.add(diagnostic);
+    }
+
+    /**
+     * Renders every diagnostic reported so far and passes them to the sink.
+     */
+    public void flush() {
+        diagnostics.flush(files);
+    }
+
+    /**
+     * Reports a semantic error message.
+     *
+     * @param position Packed source position, which knows the file, line and
+     *                 column of this error.
+     * @param str The error message.
+     */
+    public void error(long position, String str) {
+        reportError(Diagnostic.at(position, Diagnostic.Code.SEMANTIC, str));
+    }
+
+    public void error(SourceToken info, String str) {
+        error(info.getPosition(), str);
+    }
+
+    public void error(String str) {
+        reportError(Diagnostic.of(Diagnostic.Code.SEMANTIC, str));
+    }
+
+    private void reportError(Diagnostic error) {
+        var errors = collectedErrors.get();
+        if (errors != null)
+            errors.add(error);
+        else
+            count(error);
+
+        semanticErrors = true;
+    }
+
+    // Errors collected on other threads are only counted once reported here,
+    // in their final order, so that the same ones are kept in every run.
+    private synchronized void count(Diagnostic error) {
+        if (errorLimitReached)
+            return;
+
+        diagnostics.add(error);
+        errorCount++;
+        passErrorCount++;
+
+        if (limits.getMaxErrors() > 0 && errorCount >= limits.getMaxErrors()) {
+            errorLimitReached = true;
+            diagnostics.add(Diagnostic.of(Diagnostic.Code.LIMIT, "Error limit of " + limits.getMaxErrors() + " reached"));
+        } else if (limits.getMaxPassErrors() > 0 && passErrorCount >= limits.getMaxPassErrors()) {
+            errorLimitReached = true;
+            diagnostics.add(Diagnostic.of(Diagnostic.Code.LIMIT, "Error limit of " + limits.getMaxPassErrors() + " per pass reached"));
+        }
+    }
+
+    /**
+     * Starts counting the errors of a new traversal of the AST.
+     */
+    public synchronized void startPass() {
+        passErrorCount = 0;
+    }
+
+    /**
+     * Whether no more errors will be reported, in which case passes should
+     * stop walking the AST.
+     */
+    public boolean isErrorLimitReached() {
+        return errorLimitReached;
+    }
+
+    /**
+     * Runs an action on the current thread, keeping the errors it reports
+     * instead of adding them to the diagnostics.
+     *
+     * @return The errors, in the order they were reported.
+     */
+    public List<Diagnostic> collectErrors(Runnable action) {
+        var errors = new ArrayList<Diagnostic>();
+        var outer = collectedErrors.get();
+
+        collectedErrors.set(errors);
+        try {
+            action.run();
+        } finally {
+            collectedErrors.set(outer);
+        }
+
+        return errors;
+    }
+
+    /**
+     * Reports errors previously kept by collectErrors.
+     */
+    public void reportErrors(List<Diagnostic> errors) {
+        errors.forEach(this::reportError);
+    }
+
+    public boolean hasSemanticErrors() {
+        return semanticErrors;
+    }
+}
@@ -0,0 +1,94 @@
+package cool.structures;
+
+// A single message reported by a compilation, such as a syntax or semantic
+// error, kept as a record until it is rendered. Messages tied to no place in
+// the sources, such as the one announcing that compilation halted, have no
+// file, line or column.
+public class Diagnostic {
+    public enum Severity {
+        ERROR,
+        NOTE
+    }
+
+    // The kind of message, along with the label the text format puts before
+    // it, if any.
+    public enum Code {
+        LEXICAL(Severity.ERROR, "Lexical error"),
+        SYNTAX(Severity.ERROR, "Syntax error"),
+        SEMANTIC(Severity.ERROR, "Semantic error"),
+        HALTED(Severity.NOTE, null),
+        LIMIT(Severity.NOTE, null);
+
+        private final Severity severity;
+        private final String label;
+
+        Code(Severity severity, String label) {
+            this.severity = severity;
+            this.label = label;
+        }
+
+        public Severity getSeverity() {
+            return severity;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    public static final int NO_FILE = -1;
+
+    private final int fileId;
+    private final int line;
+    private final int column;
+    private final Code code;
+    private final String message;
+
+    private Diagnostic(int fileId, int line, int column, Code code, String message) {
+        this.fileId = fileId;
+        this.line = line;
+        this.column = column;
+        this.code = code;
+        this.message = message;
+    }
+
+    // A message about the given packed source position.
+    public static Diagnostic at(long position, Code code, String message) {
+        return new Diagnostic(SourcePositions.fileId(position), SourcePositions.line(position),
+                SourcePositions.column(position), code, message);
+    }
+
+    // A message about the program as a whole.
+    public static Diagnostic of(Code code, String message) {
+        return new Diagnostic(NO_FILE, 0, 0, code, message);
+    }
+
+    public boolean hasFile() {
+        return fileId != NO_FILE;
+    }
+
+    public int getFileId() {
+        return fileId;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    // Counted from 0, as in packed positions.
+    public int getColumn() {
+        return column;
+    }
+
+    public Severity getSeverity() {
+        return code.getSeverity();
+    }
+
+    public Code getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
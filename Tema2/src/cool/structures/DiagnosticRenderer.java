@@ -0,0 +1,77 @@
+package cool.structures;
+
+// Turns diagnostics into the text a compilation outputs, one line each.
+public interface DiagnosticRenderer {
+    // The format the compiler has always printed errors in, such as
+    // "a.cl", line 3:5, Semantic error: ...
+    DiagnosticRenderer TEXT = new TextRenderer();
+
+    // One JSON object per line, for tools reading the output.
+    DiagnosticRenderer JSON_LINES = new JsonLinesRenderer();
+
+    // Files are named as the given table of the compilation knows them.
+    void render(Diagnostic diagnostic, SourceFiles files, StringBuilder out);
+}
+
+class TextRenderer implements DiagnosticRenderer {
+    @Override
+    public void render(Diagnostic diagnostic, SourceFiles files, StringBuilder out) {
+        if (diagnostic.hasFile())
+            out.append('"').append(files.baseName(diagnostic.getFileId()))
+                    .append("\", line ").append(diagnostic.getLine())
+                    .append(':').append(diagnostic.getColumn() + 1).append(", ");
+
+        var label = diagnostic.getCode().getLabel();
+        if (label != null)
+            out.append(label).append(": ");
+
+        out.append(diagnostic.getMessage());
+    }
+}
+
+// Columns are counted from 1, as in the text format. Diagnostics without a
+// file have null file, line and column.
+class JsonLinesRenderer implements DiagnosticRenderer {
+    @Override
+    public void render(Diagnostic diagnostic, SourceFiles files, StringBuilder out) {
+        out.append("{\"file\":");
+        if (diagnostic.hasFile()) {
+            string(files.baseName(diagnostic.getFileId()), out);
+            out.append(",\"line\":").append(diagnostic.getLine())
+                    .append(",\"column\":").append(diagnostic.getColumn() + 1);
+        } else {
+            out.append("null,\"line\":null,\"column\":null");
+        }
+
+        out.append(",\"severity\":");
+        string(diagnostic.getSeverity().name().toLowerCase(), out);
+        out.append(",\"code\":");
+        string(diagnostic.getCode().name().toLowerCase(), out);
+        out.append(",\"message\":");
+        string(diagnostic.getMessage(), out);
+        out.append('}');
+    }
+
+    // Messages may quote source text, such as unterminated strings, so any
+    // character JSON does not allow as is gets escaped.
+    private static void string(String text, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        out.append(String.format("\\u%04x", (int) c));
+                    else
+                        out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,40 @@
+package cool.structures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Buffers the diagnostics of a compilation, which are rendered and passed to
+// the sink all at once when the compilation is done, rather than printed one
+// line at a time as they are reported.
+public class Diagnostics {
+    private final DiagnosticRenderer renderer;
+    private final Consumer<String> sink;
+    private final List<Diagnostic> buffer = new ArrayList<>();
+
+    public Diagnostics(DiagnosticRenderer renderer, Consumer<String> sink) {
+        this.renderer = renderer;
+        this.sink = sink;
+    }
+
+    public synchronized void add(Diagnostic diagnostic) {
+        buffer.add(diagnostic);
+    }
+
+    // Passes every diagnostic buffered so far to the sink in a single call,
+    // one line each, in the order they were reported.
+    public synchronized void flush(SourceFiles files) {
+        if (buffer.isEmpty())
+            return;
+
+        var out = new StringBuilder();
+        for (var diagnostic : buffer) {
+            if (out.length() > 0)
+                out.append(System.lineSeparator());
+            renderer.render(diagnostic, files, out);
+        }
+
+        buffer.clear();
+        sink.accept(out.toString());
+    }
+}
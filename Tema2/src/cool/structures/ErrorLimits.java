@@ -0,0 +1,52 @@
+package cool.structures;
+
+// Bounds on the semantic errors a compilation reports, so that a badly broken
+// input is checked in about the time it takes to find that many errors. A
+// limit of 0 means there is none.
+public class ErrorLimits {
+    public static final ErrorLimits NONE = new ErrorLimits(0, 0, false);
+
+    // Errors reported by all passes together.
+    private final int maxErrors;
+
+    // Errors reported by a single traversal of the AST. Fused passes share
+    // their traversal's limit.
+    private final int maxPassErrors;
+
+    // Whether an expression the type pass found an error in stops being
+    // checked, instead of its remaining parts being checked against a type
+    // that is already wrong.
+    private final boolean suppressCascades;
+
+    public ErrorLimits(int maxErrors, int maxPassErrors, boolean suppressCascades) {
+        this.maxErrors = maxErrors;
+        this.maxPassErrors = maxPassErrors;
+        this.suppressCascades = suppressCascades;
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    public int getMaxPassErrors() {
+        return maxPassErrors;
+    }
+
+    public boolean suppressesCascades() {
+        return suppressCascades;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ErrorLimits other))
+            return false;
+
+        return maxErrors == other.maxErrors && maxPassErrors == other.maxPassErrors
+                && suppressCascades == other.suppressCascades;
+    }
+
+    @Override
+    public int hashCode() {
+        return (maxErrors * 31 + maxPassErrors) * 2 + (suppressCascades ? 1 : 0);
+    }
+}
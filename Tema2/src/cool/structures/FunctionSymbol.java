@@ -1,45 +1,48 @@
-package cool.structures;
-
-import java.util.LinkedHashMap;
-import java.util.Map;
-
-public class FunctionSymbol extends IdSymbol implements Scope {
-    private Scope parent;
-    private Map<String, Symbol> symbols = new LinkedHashMap<>();
-    public FunctionSymbol(String name, Scope parent) {
-        super(name);
-        this.parent = parent;
-    }
-
-    @Override
-    public boolean add(Symbol sym) {
-        if (symbols.containsKey(sym.getName()))
-            return false;
-
-        symbols.put(sym.getName(), sym);
-
-        return true;
-    }
-
-    @Override
-    public Symbol lookup(String str) {
-        var sym = symbols.get(str.substring(1));
-
-        if (sym != null)
-            return sym;
-
-        if (parent != null)
-            return parent.lookup(str);
-
-        return null;
-    }
-
-    @Override
-    public Scope getParent() {
-        return parent;
-    }
-
-    public Map<String, Symbol> getSymbols() {
-        return symbols;
-    }
-}
+package cool.structures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FunctionSymbol extends IdSymbol implements Scope {
+    private Scope parent;
+    private Map<String, Symbol> symbols = new LinkedHashMap<>();
+    public FunctionSymbol(String name, Scope parent) {
+        super(name);
+        this.parent = parent;
+    }
+
+    @Override
+    public boolean add(Symbol sym) {
+        if (symbols.containsKey(sym.getName()))
+            return false;
+
+        symbols.put(sym.getName(), sym);
+
+        return true;
+    }
+
+    @Override
+    public Symbol lookup(Namespace namespace, String name) {
+        // Formal parameters are the only symbols defined in a method scope.
+        if (namespace == Namespace.LOCAL) {
+            var sym = symbols.get(name);
+
+            if (sym != null)
+                return sym;
+        }
+
+        if (parent != null)
+            return parent.lookup(namespace, name);
+
+        return null;
+    }
+
+    @Override
+    public Scope getParent() {
+        return parent;
+    }
+
+    public Map<String, Symbol> getSymbols() {
+        return symbols;
+    }
+}
@@ -1,32 +1,30 @@
-package cool.structures;
-
-public class LetOrCaseSymbol extends IdSymbol implements Scope {
-    private Scope parent;
-    public LetOrCaseSymbol(String name, Scope parent) {
-        super(name);
-        this.parent = parent;
-    }
-
-    @Override
-    public boolean add(Symbol sym) {
-        return false;
-    }
-
-    @Override
-    public Symbol lookup(String str) {
-        if (str.charAt(0) == '1') {
-            if (str.substring(1).equals(name))
-                return this;
-        }
-
-        if (parent != null)
-            return parent.lookup(str);
-
-        return null;
-    }
-
-    @Override
-    public Scope getParent() {
-        return parent;
-    }
-}
+package cool.structures;
+
+public class LetOrCaseSymbol extends IdSymbol implements Scope {
+    private Scope parent;
+    public LetOrCaseSymbol(String name, Scope parent) {
+        super(name);
+        this.parent = parent;
+    }
+
+    @Override
+    public boolean add(Symbol sym) {
+        return false;
+    }
+
+    @Override
+    public Symbol lookup(Namespace namespace, String name) {
+        if (namespace == Namespace.LOCAL && this.name.equals(name))
+            return this;
+
+        if (parent != null)
+            return parent.lookup(namespace, name);
+
+        return null;
+    }
+
+    @Override
+    public Scope getParent() {
+        return parent;
+    }
+}
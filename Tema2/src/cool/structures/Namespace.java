@@ -0,0 +1,26 @@
+package cool.structures;
+
+// The kinds of names a scope can be searched for. Each kind has its own
+// namespace, so lookups never need to encode the kind into the name itself.
+public enum Namespace {
+    // Class names, defined in the global scope.
+    CLASS,
+
+    // Methods, searched in a class and then up its inheritance chain.
+    METHOD,
+
+    // Attributes, searched in a class and then up its inheritance chain.
+    ATTRIBUTE,
+
+    // Identifiers used in expressions: let and case variables, then formal
+    // parameters, then the attributes of the enclosing class.
+    LOCAL;
+
+    public boolean contains(Symbol sym) {
+        return switch (this) {
+            case CLASS -> sym instanceof ClassSymbol;
+            case METHOD -> sym instanceof FunctionSymbol;
+            case ATTRIBUTE, LOCAL -> sym instanceof IdSymbol && !(sym instanceof FunctionSymbol);
+        };
+    }
+}
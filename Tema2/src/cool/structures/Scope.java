@@ -1,9 +1,9 @@
-package cool.structures;
-
-public interface Scope {
-    public boolean add(Symbol sym);
-    
-    public Symbol lookup(String str);
-    
-    public Scope getParent();
-}
+package cool.structures;
+
+public interface Scope {
+    public boolean add(Symbol sym);
+    
+    public Symbol lookup(Namespace namespace, String name);
+    
+    public Scope getParent();
+}
@@ -0,0 +1,61 @@
+package cool.structures;
+
+import java.io.File;
+import java.util.Arrays;
+
+// The files of a single compilation, by the ids their source positions are
+// packed with. Ids are only given out within a compilation, so they stay
+// small however long the process runs. Files whose ASTs are reused from an
+// earlier compilation keep the id they were parsed with, and new files get
+// the lowest ids left.
+//
+// Files are added by the compilation's own thread before parsing starts,
+// while names are looked up from any thread, when rendering diagnostics.
+// Lookups read the latest copy of the table without locking.
+public class SourceFiles {
+    private static final int MAX_FILES = 1 << SourcePositions.FILE_BITS;
+
+    // The name error messages refer to each file by, without its directory.
+    private volatile String[] baseNames = new String[0];
+
+    // No id below this one is free.
+    private int lowestFree = 0;
+
+    // Gives the file the lowest id no other file of this compilation has.
+    public synchronized int add(String fileName) {
+        var names = baseNames;
+        int fileId = lowestFree;
+        while (fileId < names.length && names[fileId] != null)
+            fileId++;
+        lowestFree = fileId + 1;
+
+        if (fileId >= MAX_FILES)
+            throw new IllegalArgumentException("More than " + MAX_FILES + " files given");
+
+        set(fileId, fileName);
+        return fileId;
+    }
+
+    // Gives the file the id it was parsed with in an earlier compilation.
+    // Returns false if another file of this compilation already has it.
+    public synchronized boolean claim(int fileId, String fileName) {
+        if (fileId < 0 || fileId >= MAX_FILES)
+            throw new IllegalArgumentException("Invalid file id " + fileId);
+
+        if (fileId < baseNames.length && baseNames[fileId] != null)
+            return false;
+
+        set(fileId, fileName);
+        return true;
+    }
+
+    private void set(int fileId, String fileName) {
+        var names = Arrays.copyOf(baseNames, Math.max(baseNames.length, fileId + 1));
+        names[fileId] = new File(fileName).getName();
+        baseNames = names;
+    }
+
+    public String baseName(int fileId) {
+        return baseNames[fileId];
+    }
+}
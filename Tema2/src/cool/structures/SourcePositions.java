@@ -0,0 +1,36 @@
+package cool.structures;
+
+// Positions in source files, packed into a long each: the file's id, the line
+// and the column, counted from 0. AST nodes keep these instead of parse tree
+// nodes and tokens, so the parse tree can be discarded once the AST is built.
+//
+// File ids are those of the compilation's SourceFiles.
+public class SourcePositions {
+    static final int FILE_BITS = 20;
+    private static final int LINE_BITS = 24;
+    private static final int COLUMN_BITS = 20;
+
+    // Lines and columns beyond what fits are clamped rather than allowed to
+    // spill into the other fields. File ids that do not fit are rejected, as
+    // they would point to another file.
+    public static long pack(int fileId, int line, int column) {
+        if (fileId >>> FILE_BITS != 0)
+            throw new IllegalArgumentException("Invalid file id " + fileId);
+
+        return ((long) fileId << (LINE_BITS + COLUMN_BITS))
+                | ((long) Math.min(line, (1 << LINE_BITS) - 1) << COLUMN_BITS)
+                | Math.min(column, (1 << COLUMN_BITS) - 1);
+    }
+
+    public static int fileId(long position) {
+        return (int) (position >>> (LINE_BITS + COLUMN_BITS));
+    }
+
+    public static int line(long position) {
+        return (int) (position >>> COLUMN_BITS) & ((1 << LINE_BITS) - 1);
+    }
+
+    public static int column(long position) {
+        return (int) position & ((1 << COLUMN_BITS) - 1);
+    }
+}
@@ -0,0 +1,21 @@
+package cool.structures;
+
+// What the AST keeps of a token: its text, interned as identifiers and type
+// names repeat throughout a program, and its packed source position.
+public class SourceToken {
+    private final String text;
+    private final long position;
+
+    public SourceToken(String text, long position) {
+        this.text = text.intern();
+        this.position = position;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+}
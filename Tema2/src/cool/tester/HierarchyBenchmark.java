@@ -0,0 +1,93 @@
+package cool.tester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import cool.structures.ClassHierarchy;
+import cool.structures.ClassSymbol;
+
+// Compares subtype and least common ancestor queries on a frozen ClassHierarchy
+// with the chain walks used for classes that are not numbered, on synthetic
+// deep, wide and balanced hierarchies.
+public class HierarchyBenchmark {
+    private static final int QUERIES = 200_000;
+    private static final int ROUNDS = 5;
+
+    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.tester.HierarchyBenchmark
+    public static void main(String[] args) {
+        // Each class's parent, given its index; class 0 is the root.
+        run("deep (chain of 2000)", 2000, i -> i - 1);
+        run("wide (10000 children)", 10001, i -> 0);
+        run("balanced (binary, 32767)", 32767, i -> (i - 1) / 2);
+    }
+
+    private static void run(String name, int size, IntUnaryOperator parentOf) {
+        var walked = build(size, parentOf);
+        var numbered = build(size, parentOf);
+        new ClassHierarchy(numbered);
+
+        // The same random pairs for both variants.
+        var random = new Random(size);
+        int[] left = new int[QUERIES];
+        int[] right = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            left[i] = random.nextInt(size);
+            right[i] = random.nextInt(size);
+        }
+
+        System.out.println(name);
+        check(walked, numbered, left, right);
+        for (int round = 0; round < ROUNDS; round++) {
+            boolean last = round == ROUNDS - 1;
+            measure("isChildOf, walk", walked, left, right, true, last);
+            measure("isChildOf, numbered", numbered, left, right, true, last);
+            measure("leastCommonAncestor, walk", walked, left, right, false, last);
+            measure("leastCommonAncestor, numbered", numbered, left, right, false, last);
+        }
+    }
+
+    private static List<ClassSymbol> build(int size, IntUnaryOperator parentOf) {
+        var classes = new ArrayList<ClassSymbol>(size);
+        for (int i = 0; i < size; i++) {
+            var parent = i == 0 ? null : classes.get(parentOf.applyAsInt(i));
+            classes.add(new ClassSymbol("C" + i, null, parent));
+        }
+
+        return classes;
+    }
+
+    // Both variants must agree before their speed is worth comparing.
+    private static void check(List<ClassSymbol> walked, List<ClassSymbol> numbered, int[] left, int[] right) {
+        for (int i = 0; i < QUERIES / 100; i++) {
+            var walkedAncestor = ClassSymbol.leastCommonAncestor(walked.get(left[i]), walked.get(right[i]));
+            var numberedAncestor = ClassSymbol.leastCommonAncestor(numbered.get(left[i]), numbered.get(right[i]));
+
+            if (ClassSymbol.isChildOf(walked.get(left[i]), walked.get(right[i]))
+                    != ClassSymbol.isChildOf(numbered.get(left[i]), numbered.get(right[i]))
+                    || !walkedAncestor.getName().equals(numberedAncestor.getName()))
+                throw new IllegalStateException("Mismatch for C" + left[i] + " and C" + right[i]);
+        }
+    }
+
+    // Earlier rounds only warm up the JIT; the last one is reported.
+    private static void measure(String query, List<ClassSymbol> classes, int[] left, int[] right,
+                                boolean subtype, boolean report) {
+        // Walks are quadratic on deep hierarchies, so they get fewer queries.
+        int queries = query.endsWith("walk") ? QUERIES / 100 : QUERIES;
+        int found = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            var a = classes.get(left[i]);
+            var b = classes.get(right[i]);
+            if (subtype ? ClassSymbol.isChildOf(a, b) : ClassSymbol.leastCommonAncestor(a, b) != null)
+                found++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if (report)
+            System.out.printf("  %-32s %10.1f ns/query (%d of %d)%n", query, (double) elapsed / queries, found, queries);
+    }
+}
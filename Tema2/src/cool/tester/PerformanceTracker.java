@@ -0,0 +1,285 @@
+package cool.tester;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import cool.compiler.Compiler;
+
+// Guards the testers against slowdowns. With --perf, the whole suite is
+// compiled a few times to warm up, then each test several more times with
+// --profile=json, and the median wall time, CPU time and allocated bytes of
+// each phase, over all files, are compared to those of a baseline file.
+// Phases taking more than the threshold over the baseline are flagged, and
+// the tester exits with a failure status. With --perf-record, or when there
+// is no baseline yet, the measurements become the new baseline.
+//
+// Tests are measured one at a time, after the tests ran, so that they do not
+// slow one another down. Changes below a floor, such as those of phases
+// taking microseconds, are noise rather than regressions and are not flagged.
+class PerformanceTracker {
+    private static final long MIN_NANOS = 200_000;
+    private static final long MIN_BYTES = 4 << 10;
+
+    private static final String[] METRICS = { "wallNanos", "cpuNanos", "allocatedBytes" };
+
+    // Records of both the profiles printed by the compiler and the baseline
+    // file, one per line.
+    private static final Pattern RECORD = Pattern.compile(
+            "\\{(?:\"test\":\"((?:[^\"\\\\]|\\\\.)*)\",)?\"phase\":\"([^\"]*)\",(?:\"file\":(?:null|\"(?:[^\"\\\\]|\\\\.)*\"),)?"
+                    + "\"wallNanos\":(-?\\d+),\"cpuNanos\":(-?\\d+),\"allocatedBytes\":(-?\\d+)\\}");
+
+    boolean enabled = false;
+    boolean record = false;
+    int warmups = 3;
+    int iterations = 5;
+
+    // Relative increase over the baseline that is flagged, in percent.
+    int threshold = 20;
+
+    String baseline;
+
+    // Number of classes of the generated programs measured along with the
+    // tests, if any.
+    int generatedClasses = 0;
+
+    // --perf, --perf-record, --perf-warmups=N, --perf-iterations=N,
+    // --perf-threshold=PERCENT, --perf-baseline=FILE and
+    // --perf-generated=CLASSES. Any of them enables tracking.
+    static PerformanceTracker parse(String[] args, String defaultBaseline) {
+        var tracker = new PerformanceTracker();
+        tracker.baseline = defaultBaseline;
+
+        for (var arg : args) {
+            if (arg.equals("--perf")) {
+                // Only enables tracking.
+            } else if (arg.equals("--perf-record")) {
+                tracker.record = true;
+            } else if (arg.startsWith("--perf-warmups=")) {
+                tracker.warmups = number(arg, "--perf-warmups=", 0);
+            } else if (arg.startsWith("--perf-iterations=")) {
+                tracker.iterations = number(arg, "--perf-iterations=", 1);
+            } else if (arg.startsWith("--perf-threshold=")) {
+                tracker.threshold = number(arg, "--perf-threshold=", 0);
+            } else if (arg.startsWith("--perf-baseline=")) {
+                tracker.baseline = arg.substring("--perf-baseline=".length());
+            } else if (arg.startsWith("--perf-generated=")) {
+                tracker.generatedClasses = number(arg, "--perf-generated=", 1);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+
+            tracker.enabled = true;
+        }
+
+        return tracker;
+    }
+
+    private static int number(String arg, String prefix, int min) {
+        try {
+            int number = Integer.parseInt(arg.substring(prefix.length()));
+            if (number >= min)
+                return number;
+        } catch (NumberFormatException e) {
+            // Reported below, like numbers that are too small.
+        }
+
+        throw new IllegalArgumentException("Invalid number in " + arg);
+    }
+
+    // Measures the given tests, each compiled with the arguments it maps to,
+    // and either compares them to the baseline or records them as the new
+    // one. Returns the number of regressions.
+    int run(File[] tests, Function<File, String[]> argsOf, PrintStream out) throws IOException {
+        if (!enabled)
+            return 0;
+
+        var compilations = new LinkedHashMap<String, String[]>();
+        for (var test : tests)
+            compilations.put(test.getName(), argsOf.apply(test));
+
+        if (generatedClasses == 0)
+            return run(compilations, out);
+
+        var directory = generate(compilations);
+        try {
+            return run(compilations, out);
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (var file : (Iterable<Path>) files::iterator)
+                    Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // Programs far larger than the tests, one correct and one with semantic
+    // errors, written to a temporary directory and compiled on their own. The
+    // seed is fixed, so the same programs are measured every time, and their
+    // names tell programs of different sizes apart in the baseline.
+    private Path generate(Map<String, String[]> compilations) throws IOException {
+        var directory = Files.createTempDirectory("cool-perf");
+        for (var errors : new double[] { 0, 0.05 }) {
+            var generator = new ProgramGenerator();
+            generator.classes = generatedClasses;
+            generator.errors = errors;
+
+            var name = "generated-" + generatedClasses + (errors > 0 ? "-ill-typed" : "") + ".cl";
+            var file = directory.resolve(name);
+            Files.writeString(file, generator.generate(), StandardCharsets.UTF_8);
+            compilations.put(name, new String[] { file.toString() });
+        }
+
+        return directory;
+    }
+
+    private int run(Map<String, String[]> compilations, PrintStream out) throws IOException {
+        // Whole rounds, so that the first tests measured are as warm as the
+        // last ones.
+        for (int round = 0; round < warmups; round++)
+            for (var args : compilations.values())
+                Compiler.compile(args, output -> { }, errors -> { });
+
+        var current = new LinkedHashMap<String, Map<String, long[]>>();
+        for (var compilation : compilations.entrySet())
+            current.put(compilation.getKey(), measure(compilation.getValue()));
+
+        var baselinePath = Path.of(baseline);
+        if (record || !Files.exists(baselinePath)) {
+            write(current, baselinePath);
+            out.println("Performance baseline written to " + baseline);
+            return 0;
+        }
+
+        var previous = read(baselinePath);
+        int regressions = 0;
+        for (var test : current.entrySet()) {
+            var previousPhases = previous.get(test.getKey());
+            if (previousPhases == null)
+                continue;
+
+            for (var phase : test.getValue().entrySet()) {
+                var before = previousPhases.get(phase.getKey());
+                if (before == null)
+                    continue;
+
+                for (int metric = 0; metric < METRICS.length; metric++) {
+                    long was = before[metric];
+                    long is = phase.getValue()[metric];
+                    if (!regressed(was, is, metric == 2 ? MIN_BYTES : MIN_NANOS))
+                        continue;
+
+                    out.printf("%-30s -> %s %s regressed: %d, was %d (+%d%%)%n", test.getKey(), phase.getKey(),
+                            METRICS[metric], is, was, was == 0 ? 100 : (is - was) * 100 / was);
+                    regressions++;
+                }
+            }
+        }
+
+        out.println("Performance: " + regressions + " regression(s) over " + threshold + "% against " + baseline);
+        return regressions;
+    }
+
+    private boolean regressed(long was, long is, long floor) {
+        if (was < 0 || is < 0)
+            return false;
+
+        return is - was > floor && is * 100 > was * (100L + threshold);
+    }
+
+    // The median of each metric of each phase, summed over files, across
+    // the measured compilations.
+    private Map<String, long[]> measure(String[] args) throws IOException {
+        var profiledArgs = Arrays.copyOf(args, args.length + 1);
+        profiledArgs[args.length] = "--profile=json";
+
+        var runs = new ArrayList<Map<String, long[]>>();
+        for (int i = 0; i < iterations; i++) {
+            var phases = new LinkedHashMap<String, long[]>();
+            Compiler.compile(profiledArgs, output -> parse(output, phases), errors -> { });
+            runs.add(phases);
+        }
+
+        var medians = new LinkedHashMap<String, long[]>();
+        for (var phase : runs.get(runs.size() - 1).keySet()) {
+            var median = new long[METRICS.length];
+            for (int metric = 0; metric < METRICS.length; metric++) {
+                var values = new long[runs.size()];
+                for (int i = 0; i < runs.size(); i++) {
+                    var totals = runs.get(i).get(phase);
+                    values[i] = totals == null ? -1 : totals[metric];
+                }
+
+                Arrays.sort(values);
+                median[metric] = values[0] < 0 ? -1 : values[values.length / 2];
+            }
+            medians.put(phase, median);
+        }
+
+        return medians;
+    }
+
+    // Adds up the measurements of each phase in a profile. A value any of
+    // them lacks stays -1.
+    private static void parse(String profile, Map<String, long[]> phases) {
+        var matcher = RECORD.matcher(profile);
+        while (matcher.find()) {
+            var totals = phases.computeIfAbsent(matcher.group(2), phase -> new long[METRICS.length]);
+            for (int metric = 0; metric < METRICS.length; metric++) {
+                long value = Long.parseLong(matcher.group(3 + metric));
+                totals[metric] = value < 0 || totals[metric] < 0 ? -1 : totals[metric] + value;
+            }
+        }
+    }
+
+    // One record per test and phase, each on its own line.
+    private static void write(Map<String, Map<String, long[]>> tests, Path path) throws IOException {
+        var json = new StringBuilder("{\"tests\":[");
+        boolean first = true;
+        for (var test : tests.entrySet()) {
+            for (var phase : test.getValue().entrySet()) {
+                json.append(first ? "" : ",").append(System.lineSeparator())
+                        .append("{\"test\":\"").append(escape(test.getKey()))
+                        .append("\",\"phase\":\"").append(phase.getKey()).append('"');
+                for (int metric = 0; metric < METRICS.length; metric++)
+                    json.append(",\"").append(METRICS[metric]).append("\":").append(phase.getValue()[metric]);
+                json.append('}');
+                first = false;
+            }
+        }
+        json.append(System.lineSeparator()).append("]}").append(System.lineSeparator());
+
+        Files.writeString(path, json, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Map<String, long[]>> read(Path path) throws IOException {
+        var tests = new LinkedHashMap<String, Map<String, long[]>>();
+        var matcher = RECORD.matcher(Files.readString(path, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            var values = new long[METRICS.length];
+            for (int metric = 0; metric < METRICS.length; metric++)
+                values[metric] = Long.parseLong(matcher.group(3 + metric));
+
+            var test = matcher.group(1) == null ? "" : unescape(matcher.group(1));
+            tests.computeIfAbsent(test, name -> new LinkedHashMap<>()).put(matcher.group(2), values);
+        }
+
+        return tests;
+    }
+
+    // Test names are the only free text in the baseline.
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String unescape(String text) {
+        return text.replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+}
@@ -0,0 +1,438 @@
+package cool.tester;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Generates Cool programs of a given size and shape, for measuring how the
+// compiler scales beyond the tests. Programs type check, unless errors are
+// asked for, in which case that fraction of the methods and attributes get a
+// semantic error each. The same options always give the same program.
+public class ProgramGenerator {
+    // Number of classes, besides Main.
+    public int classes = 100;
+
+    // Longest inheritance chain, not counting Object.
+    public int depth = 6;
+
+    // Methods and attributes defined by each class. Some of the methods
+    // override inherited ones.
+    public int methods = 4;
+    public int attributes = 2;
+
+    // How deeply let, case and if expressions nest within a method body.
+    public int nesting = 3;
+
+    // About how many expressions each method body has.
+    public int size = 20;
+
+    // Fraction of methods and attributes given an error.
+    public double errors = 0;
+
+    public long seed = 1;
+
+    private static final String[] BASIC_TYPES = { "Int", "Bool", "String" };
+
+    private static class ClassInfo {
+        final String name;
+        final ClassInfo parent;
+        final int depth;
+        final List<ClassInfo> children = new ArrayList<>();
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        final Map<String, MethodInfo> methods = new LinkedHashMap<>();
+
+        ClassInfo(String name, ClassInfo parent) {
+            this.name = name;
+            this.parent = parent;
+            this.depth = parent == null ? 1 : parent.depth + 1;
+        }
+    }
+
+    private static class MethodInfo {
+        final String name;
+        final List<String> formalTypes;
+        final String returnType;
+
+        MethodInfo(String name, List<String> formalTypes, String returnType) {
+            this.name = name;
+            this.formalTypes = formalTypes;
+            this.returnType = returnType;
+        }
+    }
+
+    private Random random;
+    private final List<ClassInfo> classInfos = new ArrayList<>();
+    private final Map<String, ClassInfo> classesByName = new HashMap<>();
+
+    // Identifiers in scope in the body being generated, with their types.
+    private final List<String[]> scope = new ArrayList<>();
+    private ClassInfo currentClass;
+    private int counter;
+
+    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.tester.ProgramGenerator --classes=1000 --seed=7 big.cl
+    // Options are given as --name=value, after the fields above. Without a
+    // file name, the program is printed.
+    public static void main(String[] args) throws IOException {
+        var generator = new ProgramGenerator();
+        String fileName = null;
+
+        for (var arg : args) {
+            if (!arg.startsWith("--")) {
+                fileName = arg;
+                continue;
+            }
+
+            var option = arg.substring(2).split("=", 2);
+            if (option.length != 2)
+                throw new IllegalArgumentException("Missing value in " + arg);
+
+            switch (option[0]) {
+                case "classes" -> generator.classes = Integer.parseInt(option[1]);
+                case "depth" -> generator.depth = Integer.parseInt(option[1]);
+                case "methods" -> generator.methods = Integer.parseInt(option[1]);
+                case "attributes" -> generator.attributes = Integer.parseInt(option[1]);
+                case "nesting" -> generator.nesting = Integer.parseInt(option[1]);
+                case "size" -> generator.size = Integer.parseInt(option[1]);
+                case "errors" -> generator.errors = Double.parseDouble(option[1]);
+                case "seed" -> generator.seed = Long.parseLong(option[1]);
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+
+        var program = generator.generate();
+        if (fileName == null)
+            System.out.print(program);
+        else
+            Files.writeString(Path.of(fileName), program);
+    }
+
+    public String generate() {
+        random = new Random(seed);
+        classInfos.clear();
+        classesByName.clear();
+        counter = 0;
+
+        // Signatures come first, so that bodies may use any class.
+        for (int i = 0; i < classes; i++)
+            declareClass("C" + i);
+
+        var out = new StringBuilder();
+        for (var classInfo : classInfos)
+            defineClass(classInfo, out);
+
+        out.append("class Main {\n    main() : Object { 0 };\n};\n");
+        return out.toString();
+    }
+
+    private void declareClass(String name) {
+        // Parents are picked among the classes declared so far, short of
+        // making the chain too long. A few classes start new trees.
+        ClassInfo parent = null;
+        if (!classInfos.isEmpty() && random.nextInt(5) != 0) {
+            var candidate = classInfos.get(random.nextInt(classInfos.size()));
+            if (candidate.depth < depth)
+                parent = candidate;
+        }
+
+        var classInfo = new ClassInfo(name, parent);
+        if (parent != null)
+            parent.children.add(classInfo);
+        classInfos.add(classInfo);
+        classesByName.put(name, classInfo);
+        int index = classInfos.size() - 1;
+
+        // Attribute names are unique in the program, as inherited ones may
+        // not be redefined.
+        for (int i = 0; i < attributes; i++)
+            classInfo.attributes.put("a" + index + "_" + i, randomType());
+
+        for (int i = 0; i < methods; i++) {
+            // Overrides keep the signature of the inherited method.
+            if (parent != null && random.nextInt(4) == 0) {
+                var inherited = new ArrayList<>(visibleMethods(parent).values());
+                if (!inherited.isEmpty()) {
+                    var method = inherited.get(random.nextInt(inherited.size()));
+                    if (!classInfo.methods.containsKey(method.name)) {
+                        classInfo.methods.put(method.name, method);
+                        continue;
+                    }
+                }
+            }
+
+            var formalTypes = new ArrayList<String>();
+            int formals = random.nextInt(4);
+            for (int j = 0; j < formals; j++)
+                formalTypes.add(randomType());
+
+            var methodName = "m" + index + "_" + i;
+            classInfo.methods.put(methodName, new MethodInfo(methodName, formalTypes, randomType()));
+        }
+    }
+
+    private void defineClass(ClassInfo classInfo, StringBuilder out) {
+        currentClass = classInfo;
+        scope.clear();
+
+        out.append("class ").append(classInfo.name);
+        if (classInfo.parent != null)
+            out.append(" inherits ").append(classInfo.parent.name);
+        out.append(" {\n");
+
+        for (var attribute : classInfo.attributes.entrySet()) {
+            if (fails()) {
+                out.append("    ").append(attribute.getKey()).append(" : Undefined").append(counter++).append(";\n");
+                continue;
+            }
+
+            out.append("    ").append(attribute.getKey()).append(" : ").append(attribute.getValue())
+                    .append(" <- ").append(expr(attribute.getValue(), 3, 0)).append(";\n");
+        }
+
+        for (var method : classInfo.methods.values()) {
+            scope.clear();
+            for (var ancestor = classInfo; ancestor != null; ancestor = ancestor.parent)
+                for (var attribute : ancestor.attributes.entrySet())
+                    scope.add(new String[] { attribute.getKey(), attribute.getValue() });
+
+            out.append("    ").append(method.name).append("(");
+            for (int i = 0; i < method.formalTypes.size(); i++) {
+                if (i > 0)
+                    out.append(", ");
+                out.append("p").append(i).append(" : ").append(method.formalTypes.get(i));
+                scope.add(new String[] { "p" + i, method.formalTypes.get(i) });
+            }
+
+            var body = fails() ? failingBody(method.returnType) : expr(method.returnType, size, nesting);
+            out.append(") : ").append(method.returnType).append(" {\n        ").append(body).append("\n    };\n");
+        }
+
+        out.append("};\n\n");
+    }
+
+    private boolean fails() {
+        return errors > 0 && random.nextDouble() < errors;
+    }
+
+    // A method body with one semantic error, of one of a few kinds.
+    private String failingBody(String type) {
+        var body = expr(type, size / 2, nesting);
+
+        return switch (random.nextInt(4)) {
+            case 0 -> "{ undefined" + counter++ + "; " + body + "; }";
+            case 1 -> "{ (" + expr(randomClass().name, 2, 0) + ").undefined" + counter++ + "(); " + body + "; }";
+            case 2 -> "{ if 0 then 1 else 2 fi; " + body + "; }";
+            default -> switch (type) {
+                // Object accepts anything, so it gets an ill-typed operand.
+                case "Object" -> "(" + body + " + \"s\")";
+                case "Int" -> "\"s\"";
+                default -> "0";
+            };
+        };
+    }
+
+    // An expression whose type conforms to the given one, with about the
+    // given number of subexpressions.
+    private String expr(String type, int budget, int nesting) {
+        if (budget <= 1)
+            return leaf(type);
+
+        int choice = random.nextInt(10);
+        if (nesting > 0 && choice == 0)
+            return let(type, budget, nesting);
+        if (nesting > 0 && choice == 1)
+            return caseOf(type, budget, nesting);
+        if (nesting > 0 && choice == 2)
+            return "if " + expr("Bool", budget / 3, nesting - 1)
+                    + " then " + expr(type, budget / 3, nesting - 1)
+                    + " else " + expr(type, budget / 3, nesting - 1) + " fi";
+        if (choice == 3)
+            return "{ " + expr(randomType(), budget / 2, nesting) + "; " + expr(type, budget / 2, nesting) + "; }";
+        if (choice <= 6) {
+            var dispatch = dispatch(type, budget, nesting);
+            if (dispatch != null)
+                return dispatch;
+        }
+
+        return operation(type, budget, nesting);
+    }
+
+    private String let(String type, int budget, int nesting) {
+        var name = "l" + counter++;
+        var localType = randomType();
+        var init = expr(localType, budget / 2, nesting - 1);
+
+        scope.add(new String[] { name, localType });
+        var body = expr(type, budget / 2, nesting - 1);
+        scope.remove(scope.size() - 1);
+
+        return "let " + name + " : " + localType + " <- " + init + " in " + body;
+    }
+
+    // Both branches conform to the type, so their join does too.
+    private String caseOf(String type, int budget, int nesting) {
+        var branchType = random.nextBoolean() ? randomClass().name : BASIC_TYPES[random.nextInt(BASIC_TYPES.length)];
+        var text = new StringBuilder("case ").append(expr(randomType(), budget / 3, nesting - 1)).append(" of ");
+
+        var name = "k" + counter++;
+        scope.add(new String[] { name, branchType });
+        text.append(name).append(" : ").append(branchType).append(" => ").append(expr(type, budget / 3, nesting - 1)).append("; ");
+        scope.remove(scope.size() - 1);
+
+        name = "k" + counter++;
+        scope.add(new String[] { name, "Object" });
+        text.append(name).append(" : Object => ").append(expr(type, budget / 3, nesting - 1)).append("; ");
+        scope.remove(scope.size() - 1);
+
+        return text.append("esac").toString();
+    }
+
+    // A call to a method returning a conforming type, if one is found.
+    private String dispatch(String type, int budget, int nesting) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            var classInfo = random.nextBoolean() ? currentClass : randomClass();
+            var candidates = new ArrayList<MethodInfo>();
+            for (var method : visibleMethods(classInfo).values())
+                if (conforms(method.returnType, type))
+                    candidates.add(method);
+
+            if (candidates.isEmpty())
+                continue;
+
+            var method = candidates.get(random.nextInt(candidates.size()));
+            int argumentBudget = Math.max(1, (budget - 1) / (method.formalTypes.size() + 1));
+
+            var arguments = new StringBuilder("(");
+            for (int i = 0; i < method.formalTypes.size(); i++) {
+                if (i > 0)
+                    arguments.append(", ");
+                arguments.append(expr(method.formalTypes.get(i), argumentBudget, nesting));
+            }
+            arguments.append(")");
+
+            if (classInfo == currentClass && random.nextBoolean())
+                return method.name + arguments;
+
+            var object = "(" + expr(classInfo.name, argumentBudget, nesting) + ")";
+            if (random.nextInt(4) == 0)
+                return object + "@" + classInfo.name + "." + method.name + arguments;
+
+            return object + "." + method.name + arguments;
+        }
+
+        return null;
+    }
+
+    private String operation(String type, int budget, int nesting) {
+        int half = (budget - 1) / 2;
+
+        switch (type) {
+            case "Int": {
+                return switch (random.nextInt(5)) {
+                    case 0 -> "(" + expr("Int", half, nesting) + " + " + expr("Int", half, nesting) + ")";
+                    case 1 -> "(" + expr("Int", half, nesting) + " - " + expr("Int", half, nesting) + ")";
+                    case 2 -> "(" + expr("Int", half, nesting) + " * " + expr("Int", half, nesting) + ")";
+                    case 3 -> "~(" + expr("Int", budget - 1, nesting) + ")";
+                    default -> "(" + expr("String", budget - 1, nesting) + ").length()";
+                };
+            }
+            case "Bool": {
+                return switch (random.nextInt(5)) {
+                    case 0 -> "(" + expr("Int", half, nesting) + " < " + expr("Int", half, nesting) + ")";
+                    case 1 -> "(" + expr("Int", half, nesting) + " <= " + expr("Int", half, nesting) + ")";
+                    case 2 -> "(" + expr("Int", half, nesting) + " = " + expr("Int", half, nesting) + ")";
+                    case 3 -> "not (" + expr("Bool", budget - 1, nesting) + ")";
+                    default -> "isvoid (" + expr(randomClass().name, budget - 1, nesting) + ")";
+                };
+            }
+            case "String": {
+                if (random.nextBoolean())
+                    return "(" + expr("String", half, nesting) + ").concat(" + expr("String", half, nesting) + ")";
+
+                return "(" + expr("String", half, nesting) + ").substr(" + expr("Int", half / 2, nesting)
+                        + ", " + expr("Int", half / 2, nesting) + ")";
+            }
+            case "Object":
+                return expr(randomType(), budget - 1, nesting);
+            default:
+                return leaf(type);
+        }
+    }
+
+    private String leaf(String type) {
+        if (type.equals("Object"))
+            type = random.nextBoolean() ? randomClass().name : BASIC_TYPES[random.nextInt(BASIC_TYPES.length)];
+
+        if (random.nextBoolean()) {
+            var candidates = new ArrayList<String>();
+            for (var identifier : scope)
+                if (conforms(identifier[1], type))
+                    candidates.add(identifier[0]);
+
+            if (!candidates.isEmpty())
+                return candidates.get(random.nextInt(candidates.size()));
+        }
+
+        switch (type) {
+            case "Int":
+                return Integer.toString(random.nextInt(100));
+            case "Bool":
+                return random.nextBoolean() ? "true" : "false";
+            case "String":
+                return "\"s" + random.nextInt(100) + "\"";
+            default:
+                if (conforms(currentClass.name, type) && random.nextInt(4) == 0)
+                    return "self";
+
+                // Any descendant will do.
+                var classInfo = classesByName.get(type);
+                while (!classInfo.children.isEmpty() && random.nextBoolean())
+                    classInfo = classInfo.children.get(random.nextInt(classInfo.children.size()));
+
+                return "new " + classInfo.name;
+        }
+    }
+
+    // The methods of a class, inherited ones included, by name.
+    private Map<String, MethodInfo> visibleMethods(ClassInfo classInfo) {
+        var visible = new LinkedHashMap<String, MethodInfo>();
+        for (var ancestor = classInfo; ancestor != null; ancestor = ancestor.parent)
+            for (var method : ancestor.methods.values())
+                visible.putIfAbsent(method.name, method);
+
+        return visible;
+    }
+
+    private boolean conforms(String type, String parentType) {
+        if (type.equals(parentType) || parentType.equals("Object"))
+            return true;
+
+        var classInfo = classesByName.get(type);
+        for (; classInfo != null; classInfo = classInfo.parent)
+            if (classInfo.name.equals(parentType))
+                return true;
+
+        return false;
+    }
+
+    private ClassInfo randomClass() {
+        return classInfos.get(random.nextInt(classInfos.size()));
+    }
+
+    // Types are picked among the basic ones and the classes declared so far,
+    // Object included.
+    private String randomType() {
+        int choice = random.nextInt(20);
+        if (choice == 0 || classInfos.isEmpty() && choice >= 10)
+            return "Object";
+        if (choice < 10)
+            return BASIC_TYPES[choice % BASIC_TYPES.length];
+
+        return randomClass().name;
+    }
+}
@@ -1,94 +1,138 @@
-package cool.tester;
-
-import java.io.*;
-import java.util.Arrays;
-import java.util.HashSet;
-
-import cool.compiler.Compiler;
-
-public class Tester2 {
-    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.tester.Tester2
-    public static void main(String[] args) throws IOException {
-        final String TEST_DIR_NAME = "tests/tema2";
-        var testDir = new File(TEST_DIR_NAME);
-        
-        var filenameFilter = new FilenameFilter() {
-            public boolean accept(File dir, String name) {
-                return name.endsWith(".cl") && ! name.endsWith("main.cl");
-            }
-        };
-        
-        var oldOut = System.out;
-        var oldErr = System.err;
-        
-        var total = 0;
-        
-        var files = testDir.listFiles(filenameFilter);
-        Arrays.sort(files);
-        for (var file : files) {
-            var inPath = file.getPath();
-            var outPath = inPath.replace(".cl", ".out");
-            var newOut = new PrintStream(outPath, "UTF-8");
-            System.setOut(newOut);
-            System.setErr(newOut);
-            Compiler.main(new String[] { inPath, TEST_DIR_NAME + "/main.cl" });
-            
-            oldOut.printf("%-30s -> ", file.getName());
-            var result = compare(outPath, inPath.replace(".cl", ".ref"), oldOut);
-            if (result)
-                total += 5;
-            
-            oldOut.println("-----");
-        }
-        
-        oldOut.println("Total: " + total);
-        
-        System.setOut(oldOut);
-        System.setErr(oldErr);
-    }
-    
-    public static boolean compare(String outName, String refName, PrintStream oldOut)
-            throws IOException {
-        try (var outReader = new BufferedReader(new FileReader(outName));
-             var refReader = new BufferedReader(new FileReader(refName));
-        ) {
-            String line = null;
-            
-            var outSet = new HashSet<String>();
-            var refSet = new HashSet<String>();
-            
-            while ((line = outReader.readLine()) != null)
-                outSet.add(line);
-            
-            while ((line = refReader.readLine()) != null)
-                refSet.add(line);
-            
-            if (outSet.equals(refSet)) {
-                oldOut.println("OK");
-                return true;
-            }
-            
-            oldOut.println("Failed");
-            
-            // Copy set since removeAll would mutate it.
-            var missingSet = new HashSet<String>(refSet);
-            missingSet.removeAll(outSet);
-            
-            var extraneousSet = new HashSet<String>(outSet);
-            extraneousSet.removeAll(refSet);
-            
-            if (! missingSet.isEmpty()) {
-                oldOut.println("* Missing errors:");
-                missingSet.stream().forEach(oldOut::println);
-            }
-            
-            if (! extraneousSet.isEmpty()) {
-                oldOut.println("* Extraneous errors:");
-                extraneousSet.stream().forEach(oldOut::println);
-            }
-            
-            return false;
-        }
-    }
-
-}
+package cool.tester;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cool.compiler.Compiler;
+
+// Runs the tests concurrently, each compilation with its own context, on as
+// many threads as there are processors. What a compilation prints is kept in
+// memory and compared to the reference directly, and the results are printed
+// in the order of the test names once all tests are done. Arguments enable
+// performance tracking; see PerformanceTracker.
+public class Tester2 {
+    private static class Result {
+        final String report;
+        final boolean passed;
+
+        Result(String report, boolean passed) {
+            this.report = report;
+            this.passed = passed;
+        }
+    }
+
+    // java -cp "bin;lib/antlr-4.8-complete.jar;%CLASSPATH%" cool.tester.Tester2
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final String TEST_DIR_NAME = "tests/tema2";
+        var testDir = new File(TEST_DIR_NAME);
+        var tracker = PerformanceTracker.parse(args, TEST_DIR_NAME + "/perf-baseline.json");
+
+        var filenameFilter = new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".cl") && ! name.endsWith("main.cl");
+            }
+        };
+
+        var total = 0;
+
+        var files = testDir.listFiles(filenameFilter);
+        Arrays.sort(files);
+
+        var pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        var results = new ArrayList<Future<Result>>();
+        try {
+            for (var file : files)
+                results.add(pool.submit(() -> run(file, TEST_DIR_NAME + "/main.cl")));
+
+            for (var result : results) {
+                Result outcome;
+                try {
+                    outcome = result.get();
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+
+                System.out.print(outcome.report);
+                if (outcome.passed)
+                    total += 5;
+
+                System.out.println("-----");
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        System.out.println("Total: " + total);
+
+        var regressions = tracker.run(files, file -> new String[] { file.getPath(), TEST_DIR_NAME + "/main.cl" },
+                System.out);
+        if (regressions > 0)
+            System.exit(1);
+    }
+
+    private static Result run(File file, String mainPath) throws IOException {
+        var inPath = file.getPath();
+
+        // Errors and any other output are passed to sinks that keep their
+        // lines in memory, in the same set. A failure such as a missing file
+        // is kept there too, as the exception's description.
+        var outSet = new HashSet<String>();
+        try {
+            Compiler.compile(new String[] { inPath, mainPath },
+                    message -> outSet.addAll(message.lines().toList()),
+                    message -> outSet.addAll(message.lines().toList()));
+        } catch (IOException | RuntimeException e) {
+            outSet.add(e.toString());
+        }
+
+        var report = new StringWriter();
+        var out = new PrintWriter(report);
+        out.printf("%-30s -> ", file.getName());
+        var passed = compare(outSet, inPath.replace(".cl", ".ref"), out);
+        out.flush();
+
+        return new Result(report.toString(), passed);
+    }
+
+    public static boolean compare(Set<String> outSet, String refName, PrintWriter out)
+            throws IOException {
+        var refSet = new HashSet<String>(Files.readAllLines(Path.of(refName), StandardCharsets.UTF_8));
+
+        if (outSet.equals(refSet)) {
+            out.println("OK");
+            return true;
+        }
+
+        out.println("Failed");
+
+        // Sorted, so that reports do not depend on hashing.
+        var missingSet = new TreeSet<String>(refSet);
+        missingSet.removeAll(outSet);
+
+        var extraneousSet = new TreeSet<String>(outSet);
+        extraneousSet.removeAll(refSet);
+
+        if (! missingSet.isEmpty()) {
+            out.println("* Missing errors:");
+            missingSet.forEach(out::println);
+        }
+
+        if (! extraneousSet.isEmpty()) {
+            out.println("* Extraneous errors:");
+            extraneousSet.forEach(out::println);
+        }
+
+        return false;
+    }
+
+}